@@ -1,17 +1,24 @@
 package com.example.demo.controller;
 
+import com.example.demo.model.DetectedBarcode;
+import com.example.demo.model.Recipe;
 import com.example.demo.model.RecipeMatch;
+import com.example.demo.model.RecipeRanking;
+import com.example.demo.model.ScanResult;
+import com.example.demo.model.ScanSession;
+import com.example.demo.service.BarcodeScanService;
 import com.example.demo.service.FirestoreService;
-import com.example.demo.util.CustomBarcodeProcessor;
+import com.example.demo.util.DecodeRejectedException;
 import com.google.cloud.firestore.DocumentSnapshot;
-import com.google.cloud.firestore.QueryDocumentSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
+import java.io.InputStream;
 import java.util.*;
 
 @RestController
@@ -19,6 +26,16 @@ public class BarcodeController {
 
     @Autowired
     private FirestoreService firestoreService;
+
+    @Autowired
+    private BarcodeScanService barcodeScanService;
+
+    // Suggestions per page when the request gives no limit, and the most a request may ask for.
+    @Value("${recipes.suggestions.default-limit:20}")
+    private int suggestionsDefaultLimit;
+
+    @Value("${recipes.suggestions.max-limit:100}")
+    private int suggestionsMaxLimit;
     
     // Substitution map for missing ingredients.
     private static final Map<String, String> SUBSTITUTION_MAP = new HashMap<>();
@@ -28,66 +45,183 @@ public class BarcodeController {
         SUBSTITUTION_MAP.put("egg", "flax egg (1 tbsp ground flaxseed + 3 tbsp water)");
     }
     
+    /**
+     * Scans an uploaded image. {@code deadlineMs} is the client's time budget for the scan; a scan
+     * that runs out of it answers "not detected" with {@code cutShort} set rather than running on.
+     */
     @PostMapping({"/scanBarcode", "/continuousScan"})
-    public ResponseEntity<Map<String, Object>> scanBarcode(@RequestParam("image") MultipartFile imageFile) {
+    public ResponseEntity<Map<String, Object>> scanBarcode(@RequestParam("image") MultipartFile imageFile,
+                                                           @RequestParam(value = "deadlineMs", required = false) Long deadlineMs) {
+        try {
+            try (InputStream in = imageFile.getInputStream()) {
+                return buildScanResponse(barcodeScanService.scanUpload(in, deadlineMs == null ? 0 : deadlineMs));
+            }
+        } catch (DecodeRejectedException e) {
+            return overloaded(e);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Error processing image: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Scans a raw 8-bit luminance frame sent as the request body, e.g. the Y plane of an NV21
+     * camera preview frame. Skips image decoding and color conversion entirely; {@code stride}
+     * defaults to {@code width} when the rows are not padded. Clients streaming frames should
+     * pass a stable {@code session} id so repeated frames of the same scene and the product
+     * lookup for the same barcode are served from the session. {@code deadlineMs} works as for
+     * uploaded images.
+     */
+    @PostMapping(value = "/continuousScan", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Map<String, Object>> continuousScanFrame(@RequestBody byte[] frame,
+                                                                   @RequestParam("width") int width,
+                                                                   @RequestParam("height") int height,
+                                                                   @RequestParam(value = "stride", required = false) Integer stride,
+                                                                   @RequestParam(value = "session", required = false) String sessionId,
+                                                                   @RequestParam(value = "deadlineMs", required = false) Long deadlineMs) {
+        try {
+            ScanSession session = barcodeScanService.session(sessionId);
+            ScanResult scan = barcodeScanService.scanFrame(session, frame, width, height, stride == null ? width : stride,
+                    deadlineMs == null ? 0 : deadlineMs);
+            if (session == null || !scan.isFound()) {
+                return buildScanResponse(scan);
+            }
+            Map<String, Object> cached = session.getResponse(scan.getBarcode());
+            if (cached != null) {
+                return ResponseEntity.ok(cached);
+            }
+            ResponseEntity<Map<String, Object>> response = buildScanResponse(scan);
+            session.setResponse(scan.getBarcode(), response.getBody());
+            return response;
+        } catch (DecodeRejectedException e) {
+            return overloaded(e);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Error processing frame: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Scans several images in one request, e.g. for bulk inventory intake. The images are decoded
+     * in parallel and the products of all detected barcodes are fetched in one batched read.
+     * Returns one entry per image, in upload order, with the barcode and product but no recipes.
+     */
+    @PostMapping("/scanBarcodes")
+    public ResponseEntity<Map<String, Object>> scanBarcodes(@RequestParam("images") List<MultipartFile> imageFiles) {
         Map<String, Object> response = new HashMap<>();
         try {
-            BufferedImage originalImage = ImageIO.read(imageFile.getInputStream());
-            if (originalImage == null) {
+            if (imageFiles.isEmpty() || imageFiles.size() > barcodeScanService.getMaxBatchImages()) {
                 response.put("success", false);
-                response.put("message", "Invalid image file.");
+                response.put("message", "Between 1 and " + barcodeScanService.getMaxBatchImages() + " images are required.");
                 return ResponseEntity.badRequest().body(response);
             }
-            String barcode = CustomBarcodeProcessor.detectBarcode(originalImage);
-            if (barcode == null || barcode.isEmpty()) {
-                response.put("success", false);
-                response.put("message", "Barcode not detected.");
-                return ResponseEntity.ok(response);
+            List<ScanResult> scans = barcodeScanService.scanUploads(imageFiles);
+            Set<String> barcodes = new LinkedHashSet<>();
+            for (ScanResult scan : scans) {
+                if (scan.isFound()) {
+                    barcodes.add(scan.getBarcode());
+                }
             }
-            DocumentSnapshot productDoc = firestoreService.getProductByBarcode(barcode);
-            if (!productDoc.exists()) {
-                response.put("success", false);
-                response.put("message", "Product not found for barcode: " + barcode);
-                response.put("barcode", barcode);
-                return ResponseEntity.ok(response);
+            Map<String, DocumentSnapshot> products = firestoreService.getProductsByBarcodes(barcodes);
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (int i = 0; i < scans.size(); i++) {
+                ScanResult scan = scans.get(i);
+                Map<String, Object> result = new HashMap<>();
+                result.put("index", i);
+                result.put("fileName", imageFiles.get(i).getOriginalFilename());
+                if (!scan.isValidImage()) {
+                    result.put("success", false);
+                    result.put("message", "Invalid image file.");
+                } else if (!scan.isFound()) {
+                    result.put("success", false);
+                    result.put("message", notDetectedMessage(scan));
+                    result.put("cutShort", scan.isCutShort());
+                    if (scan.getRetakeReason() != null) {
+                        result.put("retakeReason", scan.getRetakeReason());
+                    }
+                } else {
+                    String barcode = scan.getBarcode();
+                    DocumentSnapshot productDoc = products.get(barcode);
+                    result.put("barcode", barcode);
+                    if (productDoc == null || !productDoc.exists()) {
+                        result.put("success", false);
+                        result.put("message", "Product not found for barcode: " + barcode);
+                    } else {
+                        result.put("success", true);
+                        result.put("message", "Barcode scanned successfully.");
+                        result.put("ingredientName", productDoc.getString("name"));
+                        result.put("productIngredients", productDoc.get("ingredients"));
+                    }
+                }
+                results.add(result);
             }
-            String productName = productDoc.getString("name");
-            List<String> productIngredients = (List<String>) productDoc.get("ingredients");
-            if (productIngredients == null || productIngredients.isEmpty()) {
+            response.put("success", true);
+            response.put("results", results);
+            return ResponseEntity.ok(response);
+        } catch (DecodeRejectedException e) {
+            return overloaded(e);
+        } catch (Exception e) {
+            e.printStackTrace();
+            response.put("success", false);
+            response.put("message", "Error processing images: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Finds every barcode in one image, e.g. a shelf or basket photo, and returns each with its
+     * position and product. The products are fetched in one batched read.
+     */
+    @PostMapping("/scanMultiple")
+    public ResponseEntity<Map<String, Object>> scanMultiple(@RequestParam("image") MultipartFile imageFile) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<DetectedBarcode> detected = barcodeScanService.scanImageMultiple(imageFile.getBytes());
+            if (detected == null) {
                 response.put("success", false);
-                response.put("message", "No ingredients found for product: " + productName);
-                response.put("barcode", barcode);
-                return ResponseEntity.ok(response);
+                response.put("message", "Invalid image file.");
+                return ResponseEntity.badRequest().body(response);
             }
-            List<QueryDocumentSnapshot> recipeDocs = firestoreService.getRecipesByIngredients(productIngredients);
-            if (recipeDocs.isEmpty()) {
+            if (detected.isEmpty()) {
                 response.put("success", false);
-                response.put("message", "No recipes found for product ingredients: " + productIngredients);
-                response.put("barcode", barcode);
+                response.put("message", "Barcode not detected.");
                 return ResponseEntity.ok(response);
             }
-            StringBuilder receiptBuilder = new StringBuilder();
-            for (QueryDocumentSnapshot doc : recipeDocs) {
-                String title = doc.getString("title");
-                String instructions = doc.getString("instructions");
-                Long prepTime = getLongValue(doc, "preparationTime");
-                Long cookTime = getLongValue(doc, "cookingTime");
-                Long servings = getLongValue(doc, "servings");
-                String imageUrl = doc.getString("imageUrl");
-                receiptBuilder.append("Title: ").append(title).append("\n")
-                              .append("Instructions: ").append(instructions).append("\n")
-                              .append("Prep Time: ").append(prepTime).append(" mins, ")
-                              .append("Cooking Time: ").append(cookTime).append(" mins, ")
-                              .append("Servings: ").append(servings).append("\n")
-                              .append("Image URL: ").append(imageUrl).append("\n\n");
+            Set<String> barcodes = new LinkedHashSet<>();
+            for (DetectedBarcode barcode : detected) {
+                barcodes.add(barcode.getBarcode());
+            }
+            Map<String, DocumentSnapshot> products = firestoreService.getProductsByBarcodes(barcodes);
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (DetectedBarcode barcode : detected) {
+                Map<String, Object> result = new HashMap<>();
+                result.put("barcode", barcode.getBarcode());
+                result.put("format", barcode.getFormat());
+                result.put("bounds", barcode.boundsAsMap());
+                DocumentSnapshot productDoc = products.get(barcode.getBarcode());
+                if (productDoc != null && productDoc.exists()) {
+                    result.put("productFound", true);
+                    result.put("ingredientName", productDoc.getString("name"));
+                    result.put("productIngredients", productDoc.get("ingredients"));
+                } else {
+                    result.put("productFound", false);
+                }
+                results.add(result);
             }
             response.put("success", true);
-            response.put("message", "Barcode scanned successfully.");
-            response.put("barcode", barcode);
-            response.put("ingredientName", productName);
-            response.put("productIngredients", productIngredients);
-            response.put("receipt", receiptBuilder.toString());
+            response.put("message", detected.size() + " barcode(s) detected.");
+            response.put("barcodes", results);
             return ResponseEntity.ok(response);
+        } catch (DecodeRejectedException e) {
+            return overloaded(e);
         } catch (Exception e) {
             e.printStackTrace();
             response.put("success", false);
@@ -95,7 +229,111 @@ public class BarcodeController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
+
+    /**
+     * Answers a scan the decode executor had no room for with 429 Too Many Requests, so that clients
+     * back off and retry instead of piling more work on a saturated server.
+     */
+    private ResponseEntity<Map<String, Object>> overloaded(DecodeRejectedException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    private static String notDetectedMessage(ScanResult scan) {
+        if (scan.getRetakeReason() != null) {
+            return "Image quality too low (" + scan.getRetakeReason() + "), please retake the picture.";
+        }
+        return scan.isCutShort() ? "Barcode not detected in time, try again." : "Barcode not detected.";
+    }
+
+    /**
+     * Looks up the scanned product and its recipes and builds the scan response.
+     */
+    private ResponseEntity<Map<String, Object>> buildScanResponse(ScanResult scan) throws Exception {
+        Map<String, Object> response = new HashMap<>();
+        if (!scan.isValidImage()) {
+            response.put("success", false);
+            response.put("message", "Invalid image file.");
+            return ResponseEntity.badRequest().body(response);
+        }
+        String barcode = scan.getBarcode();
+        if (!scan.isFound()) {
+            response.put("success", false);
+            response.put("message", notDetectedMessage(scan));
+            response.put("cutShort", scan.isCutShort());
+            if (scan.getRetakeReason() != null) {
+                response.put("retakeReason", scan.getRetakeReason());
+            }
+            return ResponseEntity.ok(response);
+        }
+        DocumentSnapshot productDoc = firestoreService.getProductByBarcode(barcode);
+        if (!productDoc.exists()) {
+            response.put("success", false);
+            response.put("message", "Product not found for barcode: " + barcode);
+            response.put("barcode", barcode);
+            return ResponseEntity.ok(response);
+        }
+        String productName = productDoc.getString("name");
+        List<String> productIngredients = (List<String>) productDoc.get("ingredients");
+        if (productIngredients == null || productIngredients.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "No ingredients found for product: " + productName);
+            response.put("barcode", barcode);
+            return ResponseEntity.ok(response);
+        }
+        List<Recipe> recipes = firestoreService.getRecipesByIngredients(productIngredients);
+        if (recipes.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "No recipes found for product ingredients: " + productIngredients);
+            response.put("barcode", barcode);
+            return ResponseEntity.ok(response);
+        }
+        StringBuilder receiptBuilder = new StringBuilder();
+        for (Recipe recipe : recipes) {
+            String title = recipe.getTitle();
+            String instructions = recipe.getInstructions();
+            Long prepTime = orZero(recipe.getPreparationTime());
+            Long cookTime = orZero(recipe.getCookingTime());
+            Long servings = orZero(recipe.getServings());
+            String imageUrl = recipe.getImageUrl();
+            receiptBuilder.append("Title: ").append(title).append("\n")
+                          .append("Instructions: ").append(instructions).append("\n")
+                          .append("Prep Time: ").append(prepTime).append(" mins, ")
+                          .append("Cooking Time: ").append(cookTime).append(" mins, ")
+                          .append("Servings: ").append(servings).append("\n")
+                          .append("Image URL: ").append(imageUrl).append("\n\n");
+        }
+        response.put("success", true);
+        response.put("message", "Barcode scanned successfully.");
+        response.put("barcode", barcode);
+        response.put("ingredientName", productName);
+        response.put("productIngredients", productIngredients);
+        response.put("receipt", receiptBuilder.toString());
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Returns barcode decoding counters, including how often each decode tier was needed, and the
+     * state of the recipe catalog.
+     */
+    @GetMapping("/scanStats")
+    public ResponseEntity<Map<String, Object>> scanStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("stats", barcodeScanService.getStats());
+        response.put("recipeCatalog", firestoreService.getCatalogStats());
+        return ResponseEntity.ok(response);
+    }
     
+    /**
+     * Suggests recipes for the given ingredients, best first, a page at a time. {@code limit} is the
+     * page size (capped at recipes.suggestions.max-limit); {@code cursor} is the {@code nextCursor}
+     * of the previous page, which is null on the last page. {@code total} counts all pages.
+     */
     @PostMapping("/suggestRecipes")
     public ResponseEntity<Map<String, Object>> suggestRecipes(@RequestBody Map<String, Object> payload) {
         Map<String, Object> response = new HashMap<>();
@@ -114,62 +352,44 @@ public class BarcodeController {
                 bannedIngredients = (List<String>) bannedObj;
             }
             
-            Long maxTime = null;
-            if (payload.containsKey("maxTime")) {
-                Object maxTimeObj = payload.get("maxTime");
-                if (maxTimeObj instanceof Number) {
-                    maxTime = ((Number) maxTimeObj).longValue();
-                } else if (maxTimeObj instanceof String) {
-                    try {
-                        maxTime = Long.parseLong((String) maxTimeObj);
-                    } catch (NumberFormatException e) {
-                        maxTime = null;
-                    }
-                }
+            Long maxTime = longValue(payload.get("maxTime"));
+            Long maxCalories = longValue(payload.get("maxCalories"));
+
+            Long requestedLimit = longValue(payload.get("limit"));
+            if (payload.get("limit") != null && (requestedLimit == null || requestedLimit < 1)) {
+                response.put("success", false);
+                response.put("message", "limit must be a positive number.");
+                return ResponseEntity.badRequest().body(response);
             }
-            
-            Long maxCalories = null;
-            if (payload.containsKey("maxCalories")) {
-                Object maxCalsObj = payload.get("maxCalories");
-                if (maxCalsObj instanceof Number) {
-                    maxCalories = ((Number) maxCalsObj).longValue();
-                } else if (maxCalsObj instanceof String) {
-                    try {
-                        maxCalories = Long.parseLong((String) maxCalsObj);
-                    } catch (NumberFormatException e) {
-                        maxCalories = null;
-                    }
-                }
+            int limit = requestedLimit == null ? suggestionsDefaultLimit : (int) Math.min(requestedLimit, suggestionsMaxLimit);
+            Object cursorObj = payload.get("cursor");
+            int offset = cursorObj == null ? 0 : cursorOffset(cursorObj.toString());
+            if (offset < 0) {
+                response.put("success", false);
+                response.put("message", "Invalid cursor.");
+                return ResponseEntity.badRequest().body(response);
             }
             
-            List<RecipeMatch> suggestions = firestoreService.getRecipeSuggestions(
+            RecipeRanking ranking = firestoreService.getRecipeSuggestions(
                     userIngredients,
                     bannedIngredients,
                     maxTime,
                     maxCalories
             );
             
-            if (suggestions.isEmpty()) {
+            if (ranking.size() == 0) {
                 response.put("success", true);
                 response.put("recipes", new ArrayList<>());
+                response.put("total", 0);
+                response.put("nextCursor", null);
                 response.put("message", "No recipes found matching your criteria.");
                 return ResponseEntity.ok(response);
             }
             
+            List<RecipeMatch> page = ranking.page(offset, limit);
             List<Map<String, Object>> recipeResults = new ArrayList<>();
-            for (RecipeMatch match : suggestions) {
-                QueryDocumentSnapshot doc = match.getRecipeDoc();
-                @SuppressWarnings("unchecked")
-                List<String> recipeIngredients = (List<String>) doc.get("ingredients");
-                if (recipeIngredients == null) {
-                    recipeIngredients = new ArrayList<>();
-                }
-                List<String> currentIngredients = new ArrayList<>();
-                for (String ing : recipeIngredients) {
-                    if (userIngredients.contains(ing) || isIngredientMatchedForCurrent(ing, userIngredients)) {
-                        currentIngredients.add(ing);
-                    }
-                }
+            for (RecipeMatch match : page) {
+                Recipe recipe = match.getRecipe();
                 
                 List<String> missingSuggestions = new ArrayList<>();
                 List<String> missingIngredients = match.getMissingIngredients();
@@ -183,28 +403,27 @@ public class BarcodeController {
                 }
                 
                 Map<String, Object> recipeMap = new HashMap<>();
-                recipeMap.put("title", doc.getString("title"));
-                recipeMap.put("instructions", doc.getString("instructions"));
-                recipeMap.put("imageUrl", doc.getString("imageUrl"));
+                recipeMap.put("title", recipe.getTitle());
+                recipeMap.put("instructions", recipe.getInstructions());
+                recipeMap.put("imageUrl", recipe.getImageUrl());
                 recipeMap.put("matchedCount", match.getMatchedCount());
                 recipeMap.put("totalIngredients", match.getTotalRecipeIngredients());
                 recipeMap.put("missingIngredients", match.getMissingIngredients());
                 recipeMap.put("weightedScore", match.getWeightedScore());
-                recipeMap.put("currentIngredients", currentIngredients);
+                recipeMap.put("currentIngredients", match.getMatchedIngredients());
                 recipeMap.put("missingSuggestions", missingSuggestions);
                 recipeMap.put("matchCategory", match.getMatchCategory());
                 
-                Long prepTime = doc.getLong("preparationTime");
-                Long cookTime = doc.getLong("cookingTime");
-                Long recipeCalories = doc.getLong("calories");
-                recipeMap.put("preparationTime", prepTime);
-                recipeMap.put("cookingTime", cookTime);
-                recipeMap.put("calories", recipeCalories);
+                recipeMap.put("preparationTime", recipe.getPreparationTime());
+                recipeMap.put("cookingTime", recipe.getCookingTime());
+                recipeMap.put("calories", recipe.getCalories());
                 
                 recipeResults.add(recipeMap);
             }
             response.put("success", true);
             response.put("recipes", recipeResults);
+            response.put("total", ranking.size());
+            response.put("nextCursor", offset + page.size() < ranking.size() ? String.valueOf(offset + page.size()) : null);
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
@@ -215,77 +434,35 @@ public class BarcodeController {
         }
     }
     
-    private Long getLongValue(QueryDocumentSnapshot doc, String fieldName) {
-        Object value = doc.get(fieldName);
+    /**
+     * Reads a number sent either as a JSON number or as a numeric string; anything else is null.
+     */
+    private Long longValue(Object value) {
         if (value instanceof Number) {
             return ((Number) value).longValue();
         } else if (value instanceof String) {
             try {
                 return Long.parseLong((String) value);
             } catch (NumberFormatException e) {
-                return 0L;
+                return null;
             }
         }
-        return 0L;
+        return null;
     }
     
     /**
-     * Helper method for fuzzy and synonym matching for current ingredients.
+     * Returns the rank a suggestions cursor points at, or -1 if it is not one.
      */
-    private boolean isIngredientMatchedForCurrent(String recipeIngredient, List<String> userIngredients) {
-        String normalizedRecipe = recipeIngredient.toLowerCase().trim();
-        for (String userIng : userIngredients) {
-            if (userIng.toLowerCase().trim().equals(normalizedRecipe)) {
-                return true;
-            }
-        }
-        for (String userIng : userIngredients) {
-            if (levenshteinDistance(normalizedRecipe, userIng.toLowerCase().trim()) <= 2) {
-                return true;
-            }
-        }
-        Map<String, Set<String>> normalizedSynonymMap = new HashMap<>();
-        normalizedSynonymMap.put("lettuce", new HashSet<>(Arrays.asList("romaine lettuce")));
-        for (Map.Entry<String, Set<String>> entry : normalizedSynonymMap.entrySet()) {
-            String canonical = entry.getKey().toLowerCase().trim();
-            Set<String> synSet = entry.getValue();
-            if (normalizedRecipe.equals(canonical) || synSet.contains(normalizedRecipe)) {
-                for (String userIng : userIngredients) {
-                    String normalizedUser = userIng.toLowerCase().trim();
-                    if (normalizedUser.equals(canonical) || synSet.contains(normalizedUser)) {
-                        return true;
-                    }
-                    if (levenshteinDistance(normalizedUser, canonical) <= 2) {
-                        return true;
-                    }
-                    for (String syn : synSet) {
-                        if (levenshteinDistance(normalizedUser, syn) <= 2) {
-                            return true;
-                        }
-                    }
-                }
-            }
+    private int cursorOffset(String cursor) {
+        try {
+            int offset = Integer.parseInt(cursor);
+            return offset < 0 ? -1 : offset;
+        } catch (NumberFormatException e) {
+            return -1;
         }
-        return false;
     }
     
-    private int levenshteinDistance(String s, String t) {
-        int[][] d = new int[s.length() + 1][t.length() + 1];
-        for (int i = 0; i <= s.length(); i++) {
-            d[i][0] = i;
-        }
-        for (int j = 0; j <= t.length(); j++) {
-            d[0][j] = j;
-        }
-        for (int i = 1; i <= s.length(); i++) {
-            for (int j = 1; j <= t.length(); j++) {
-                int cost = s.charAt(i - 1) == t.charAt(j - 1) ? 0 : 1;
-                d[i][j] = Math.min(
-                    Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1),
-                    d[i - 1][j - 1] + cost
-                );
-            }
-        }
-        return d[s.length()][t.length()];
+    private Long orZero(Long value) {
+        return value == null ? 0L : value;
     }
 }
@@ -0,0 +1,48 @@
+package com.example.demo.model;
+
+import java.awt.Rectangle;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One barcode found in a frame that may hold several, with where it was found.
+ */
+public class DetectedBarcode {
+    private final String barcode;
+    private final String format;
+    private final Rectangle bounds;
+
+    public DetectedBarcode(String barcode, String format, Rectangle bounds) {
+        this.barcode = barcode;
+        this.format = format;
+        this.bounds = bounds;
+    }
+
+    public String getBarcode() {
+        return barcode;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Returns the box spanned by the decoder's result points in image coordinates, or null if
+     * unknown. For 1D barcodes this is the scan line across the bars.
+     */
+    public Rectangle getBounds() {
+        return bounds;
+    }
+
+    public Map<String, Object> boundsAsMap() {
+        if (bounds == null) {
+            return null;
+        }
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("x", bounds.x);
+        map.put("y", bounds.y);
+        map.put("width", bounds.width);
+        map.put("height", bounds.height);
+        return map;
+    }
+}
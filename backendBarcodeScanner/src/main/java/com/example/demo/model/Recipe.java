@@ -0,0 +1,143 @@
+package com.example.demo.model;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable copy of a document of the {@code recipes} collection, with the fields that scoring
+ * needs precomputed: the normalized (lower-cased, trimmed) ingredients and the total time.
+ */
+public class Recipe {
+    private final String id;
+    private final String title;
+    private final String instructions;
+    private final String imageUrl;
+    private final List<String> ingredients;
+    private final List<String> normalizedIngredients;
+    private final Set<String> normalizedIngredientSet;
+    private final Long preparationTime;
+    private final Long cookingTime;
+    private final Long servings;
+    private final Long calories;
+    private final long totalTime;
+
+    public Recipe(String id, String title, String instructions, String imageUrl, List<String> ingredients,
+                  Long preparationTime, Long cookingTime, Long servings, Long calories) {
+        this.id = id;
+        this.title = title;
+        this.instructions = instructions;
+        this.imageUrl = imageUrl;
+        this.ingredients = Collections.unmodifiableList(new ArrayList<>(ingredients));
+        List<String> normalized = new ArrayList<>(ingredients.size());
+        for (String ingredient : ingredients) {
+            normalized.add(normalize(ingredient));
+        }
+        this.normalizedIngredients = Collections.unmodifiableList(normalized);
+        this.normalizedIngredientSet = Collections.unmodifiableSet(new LinkedHashSet<>(normalized));
+        this.preparationTime = preparationTime;
+        this.cookingTime = cookingTime;
+        this.servings = servings;
+        this.calories = calories;
+        this.totalTime = (preparationTime == null ? 0 : preparationTime) + (cookingTime == null ? 0 : cookingTime);
+    }
+
+    /**
+     * Copies a recipe document. Non-string ingredients are skipped, and numeric fields stored as
+     * strings are parsed; fields that are missing or unreadable are null.
+     */
+    public static Recipe fromDocument(DocumentSnapshot doc) {
+        List<String> ingredients = new ArrayList<>();
+        Object value = doc.get("ingredients");
+        if (value instanceof List) {
+            for (Object ingredient : (List<?>) value) {
+                if (ingredient instanceof String) {
+                    ingredients.add((String) ingredient);
+                }
+            }
+        }
+        return new Recipe(doc.getId(), doc.getString("title"), doc.getString("instructions"),
+                doc.getString("imageUrl"), ingredients, longField(doc, "preparationTime"),
+                longField(doc, "cookingTime"), longField(doc, "servings"), longField(doc, "calories"));
+    }
+
+    /**
+     * The form ingredients are compared in.
+     */
+    public static String normalize(String ingredient) {
+        return ingredient.toLowerCase().trim();
+    }
+
+    private static Long longField(DocumentSnapshot doc, String field) {
+        Object value = doc.get(field);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getInstructions() {
+        return instructions;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public List<String> getIngredients() {
+        return ingredients;
+    }
+
+    /**
+     * The ingredients in their normalized form, in the same order as {@link #getIngredients()}.
+     */
+    public List<String> getNormalizedIngredients() {
+        return normalizedIngredients;
+    }
+
+    public Set<String> getNormalizedIngredientSet() {
+        return normalizedIngredientSet;
+    }
+
+    public Long getPreparationTime() {
+        return preparationTime;
+    }
+
+    public Long getCookingTime() {
+        return cookingTime;
+    }
+
+    public Long getServings() {
+        return servings;
+    }
+
+    public Long getCalories() {
+        return calories;
+    }
+
+    /**
+     * Preparation plus cooking time in minutes, counting missing times as 0.
+     */
+    public long getTotalTime() {
+        return totalTime;
+    }
+}
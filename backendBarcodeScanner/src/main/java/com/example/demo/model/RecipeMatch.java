@@ -1,15 +1,15 @@
 package com.example.demo.model;
 
-import com.google.cloud.firestore.QueryDocumentSnapshot;
 import java.util.List;
 
 /**
  * Model representing a matched recipe along with various computed metrics.
  */
 public class RecipeMatch {
-    private final QueryDocumentSnapshot recipeDoc;
+    private final Recipe recipe;
     private final int matchedCount;
     private final int totalRecipeIngredients;
+    private final List<String> matchedIngredients;
     private final List<String> missingIngredients;
     private final double weightedScore;
     //matchCategory indicates:
@@ -18,22 +18,24 @@ public class RecipeMatch {
     // 3 Partial match (some but not all user ingredients)
     private final int matchCategory;
 
-    public RecipeMatch(QueryDocumentSnapshot recipeDoc,
+    public RecipeMatch(Recipe recipe,
                        int matchedCount,
                        int totalRecipeIngredients,
+                       List<String> matchedIngredients,
                        List<String> missingIngredients,
                        double weightedScore,
                        int matchCategory) {
-        this.recipeDoc = recipeDoc;
+        this.recipe = recipe;
         this.matchedCount = matchedCount;
         this.totalRecipeIngredients = totalRecipeIngredients;
+        this.matchedIngredients = matchedIngredients;
         this.missingIngredients = missingIngredients;
         this.weightedScore = weightedScore;
         this.matchCategory = matchCategory;
     }
 
-    public QueryDocumentSnapshot getRecipeDoc() {
-        return recipeDoc;
+    public Recipe getRecipe() {
+        return recipe;
     }
 
     public int getMatchedCount() {
@@ -44,6 +46,13 @@ public class RecipeMatch {
         return totalRecipeIngredients;
     }
 
+    /**
+     * The recipe ingredients the user has, in recipe order, as matched while scoring.
+     */
+    public List<String> getMatchedIngredients() {
+        return matchedIngredients;
+    }
+
     public List<String> getMissingIngredients() {
         return missingIngredients;
     }
@@ -0,0 +1,82 @@
+package com.example.demo.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The scored recipe matches of one suggestion query, served a page at a time.
+ *
+ * Matches are kept in scoring order. The first page is picked with a bounded heap, so a query
+ * matching thousands of recipes only orders the few it returns. A later page sorts the matches
+ * once and keeps that ranked order, so every further page is a slice of it. Safe to share between
+ * requests, as cached rankings are.
+ */
+public class RecipeRanking {
+
+    /**
+     * Best first: highest weighted score, ties in document id order.
+     */
+    public static final Comparator<RecipeMatch> RANK = Comparator.comparingDouble(RecipeMatch::getWeightedScore).reversed()
+            .thenComparing(match -> match.getRecipe().getId());
+
+    private final RecipeMatch[] matches;
+    private volatile RecipeMatch[] ranked;
+
+    public RecipeRanking(List<RecipeMatch> matches) {
+        this.matches = matches.toArray(new RecipeMatch[0]);
+    }
+
+    /**
+     * Number of matches over all pages.
+     */
+    public int size() {
+        return matches.length;
+    }
+
+    /**
+     * Returns the matches ranked {@code offset} to {@code offset + limit - 1}, best first.
+     */
+    public List<RecipeMatch> page(int offset, int limit) {
+        if (offset >= matches.length || limit <= 0) {
+            return Collections.emptyList();
+        }
+        int end = (int) Math.min(matches.length, (long) offset + limit);
+        RecipeMatch[] order = ranked;
+        if (order == null && offset == 0 && end < matches.length) {
+            return top(end);
+        }
+        if (order == null) {
+            order = rank();
+        }
+        return Collections.unmodifiableList(Arrays.asList(order).subList(offset, end));
+    }
+
+    private List<RecipeMatch> top(int count) {
+        // Worst of the best so far at the head.
+        PriorityQueue<RecipeMatch> heap = new PriorityQueue<>(count, RANK.reversed());
+        for (RecipeMatch match : matches) {
+            if (heap.size() < count) {
+                heap.add(match);
+            } else if (RANK.compare(match, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(match);
+            }
+        }
+        List<RecipeMatch> best = new ArrayList<>(heap);
+        best.sort(RANK);
+        return best;
+    }
+
+    private synchronized RecipeMatch[] rank() {
+        if (ranked == null) {
+            RecipeMatch[] order = matches.clone();
+            Arrays.sort(order, RANK);
+            ranked = order;
+        }
+        return ranked;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.model;
+
+/**
+ * Outcome of scanning one uploaded image for a barcode.
+ */
+public class ScanResult {
+    private final boolean validImage;
+    private final String barcode;
+    private final boolean cutShort;
+    private final String retakeReason;
+
+    private ScanResult(boolean validImage, String barcode, boolean cutShort, String retakeReason) {
+        this.validImage = validImage;
+        this.barcode = barcode;
+        this.cutShort = cutShort;
+        this.retakeReason = retakeReason;
+    }
+
+    public static ScanResult invalidImage() {
+        return new ScanResult(false, null, false, null);
+    }
+
+    public static ScanResult notFound() {
+        return new ScanResult(true, null, false, null);
+    }
+
+    /**
+     * No barcode was found, but the search did not run to completion: it hit its deadline or ran
+     * the light plan under load. Trying again may succeed.
+     */
+    public static ScanResult cutShort() {
+        return new ScanResult(true, null, true, null);
+    }
+
+    /**
+     * No decode was attempted beyond the fast tier because the image is too poor to decode,
+     * e.g. blurred or badly exposed; the client should take another picture.
+     *
+     * @param reason reason code, such as "blurry"
+     */
+    public static ScanResult retake(String reason) {
+        return new ScanResult(true, null, false, reason);
+    }
+
+    public static ScanResult found(String barcode) {
+        return new ScanResult(true, barcode, false, null);
+    }
+
+    public boolean isValidImage() {
+        return validImage;
+    }
+
+    public String getBarcode() {
+        return barcode;
+    }
+
+    public boolean isCutShort() {
+        return cutShort;
+    }
+
+    /**
+     * Returns why the image should be retaken, or null if it was decoded in full.
+     */
+    public String getRetakeReason() {
+        return retakeReason;
+    }
+
+    public boolean isFound() {
+        return barcode != null && !barcode.isEmpty();
+    }
+}
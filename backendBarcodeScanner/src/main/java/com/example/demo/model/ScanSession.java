@@ -0,0 +1,123 @@
+package com.example.demo.model;
+
+import com.example.demo.util.CustomBarcodeProcessor;
+import com.example.demo.util.FrameSignature;
+import com.example.demo.util.LumaLuminanceSource;
+import com.google.zxing.Result;
+
+import java.awt.Rectangle;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * State of one client's continuous scan stream: the signature of the last frame that was actually
+ * decoded, its result, where its barcode was, and the response built for that barcode.
+ * A client may have several frames in flight, so all access is synchronized.
+ */
+public class ScanSession {
+    private final String id;
+    private volatile long lastSeen;
+
+    private int width;
+    private int height;
+    private byte[] signature;
+    private ScanResult result;
+    private long decodedAt;
+    private Rectangle region;
+
+    private String responseBarcode;
+    private Map<String, Object> response;
+
+    public ScanSession(String id) {
+        this.id = id;
+        this.lastSeen = System.currentTimeMillis();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    public void touch(long now) {
+        lastSeen = now;
+    }
+
+    /**
+     * Returns the result of the last decoded frame if the given frame is practically the same
+     * scene, or null if the frame has to be decoded. A miss is only reused for a short time,
+     * because changes such as focus hardly move the signature. The signature cannot see single
+     * bars either, so a look-alike product in the same spot would match too: a hit is only reused
+     * for a limited time, and only after one fast decode of the region where it was found gives
+     * the same barcode.
+     *
+     * @param frame              the frame, for confirming a hit
+     * @param maxDifference      largest {@link FrameSignature#distance} that counts as the same scene
+     * @param maxMissReuseMillis how long a "not detected" result may be reused
+     * @param maxHitReuseMillis  how long a found barcode may be reused
+     */
+    public ScanResult reusableResult(int width, int height, byte[] signature, LumaLuminanceSource frame,
+                                     int maxDifference, long maxMissReuseMillis, long maxHitReuseMillis, long now) {
+        ScanResult candidate;
+        Rectangle candidateRegion;
+        synchronized (this) {
+            if (result == null || width != this.width || height != this.height) {
+                return null;
+            }
+            if (now - decodedAt > (result.isFound() ? maxHitReuseMillis : maxMissReuseMillis)) {
+                return null;
+            }
+            if (FrameSignature.distance(signature, this.signature) > maxDifference) {
+                return null;
+            }
+            if (!result.isFound()) {
+                return result;
+            }
+            candidate = result;
+            candidateRegion = region;
+        }
+        if (candidateRegion == null) {
+            return null;
+        }
+        // Decoded outside the lock, so other frames of the session are not held up.
+        Result confirmed = CustomBarcodeProcessor.tryDecodeFastResult(frame.crop(
+                candidateRegion.x, candidateRegion.y, candidateRegion.width, candidateRegion.height));
+        return confirmed != null && candidate.getBarcode().equals(confirmed.getText()) ? candidate : null;
+    }
+
+    /**
+     * Returns the region of the last decoded barcode if it belongs to a frame of the given size.
+     */
+    public synchronized Rectangle getRegion(int width, int height) {
+        return width == this.width && height == this.height ? region : null;
+    }
+
+    /**
+     * Records a decoded frame.
+     *
+     * @param region where the barcode was found, or null if unknown
+     */
+    public synchronized void update(int width, int height, byte[] signature, ScanResult result,
+                                    Rectangle region, long now) {
+        this.width = width;
+        this.height = height;
+        this.signature = signature;
+        this.result = result;
+        this.region = region;
+        this.decodedAt = now;
+    }
+
+    /**
+     * Returns a copy of the response built for the given barcode, or null if there is none.
+     */
+    public synchronized Map<String, Object> getResponse(String barcode) {
+        return response != null && barcode.equals(responseBarcode) ? new HashMap<>(response) : null;
+    }
+
+    public synchronized void setResponse(String barcode, Map<String, Object> response) {
+        this.responseBarcode = barcode;
+        this.response = new HashMap<>(response);
+    }
+}
@@ -0,0 +1,645 @@
+package com.example.demo.service;
+
+import com.example.demo.model.DetectedBarcode;
+import com.example.demo.model.ScanResult;
+import com.example.demo.model.ScanSession;
+import com.example.demo.util.BarcodeDecoder;
+import com.example.demo.util.ContentCache;
+import com.example.demo.util.CustomBarcodeProcessor;
+import com.example.demo.util.DecodeExecutor;
+import com.example.demo.util.DecodeRejectedException;
+import com.example.demo.util.FrameSignature;
+import com.example.demo.util.ImageLoader;
+import com.example.demo.util.ImageQuality;
+import com.example.demo.util.LumaImage;
+import com.example.demo.util.LumaKernels;
+import com.example.demo.util.LumaLuminanceSource;
+import com.example.demo.util.PreprocessingBackends;
+import com.example.demo.util.ScanContext;
+import com.example.demo.util.ScanDeadline;
+import com.example.demo.util.VariantScheduler;
+import com.google.zxing.Result;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs barcode detection for the scan endpoints.
+ * Optionally tries cheap coarse-to-fine pyramid decodes first, then chooses between sequential
+ * decoding and the parallel first-wins race based on configuration. Continuous scan streams can
+ * keep per-client session state so that repeated frames of the same scene are not decoded again.
+ *
+ * All decoding runs on a bounded {@link DecodeExecutor} rather than on the request threads;
+ * reading uploads, cache hits and reused session frames stay on the request thread. A reused hit
+ * is confirmed there by one fast decode of the small region where its barcode was. When the
+ * executor has no room, the scan methods throw {@link DecodeRejectedException}. The helper lanes
+ * of the race run on idle decode threads too, so no more threads decode at once than the executor
+ * has (by default one per core), and a scan only races while some decode thread is idle.
+ *
+ * Every scan has a deadline, counted from when the request arrives, that the pipeline checks
+ * between decode attempts. When scans are piling up in the executor queue, new scans run a light
+ * plan instead: downscaled input, fewer variants, no rotations and no race. A miss of either kind
+ * is reported as cut short, so the client can retry rather than conclude there is no barcode.
+ */
+@Service
+public class BarcodeScanService {
+
+    // "sequential" tries the variants one after another on the scan's decode thread;
+    // "parallel" races them on the idle decode threads.
+    @Value("${scanner.decode.mode:parallel}")
+    private String decodeMode;
+
+    // When enabled, fast decodes on a coarse-to-fine pyramid run before the heavy variants.
+    @Value("${scanner.decode.pyramid:true}")
+    private boolean pyramid;
+
+    // Maximum number of concurrent attempts a single scan may run.
+    @Value("${scanner.decode.parallelism:4}")
+    private int parallelism;
+
+    // Uploads are first decoded with their longer side subsampled down to this size;
+    // 0 always decodes at full resolution.
+    @Value("${scanner.image.max-dimension:1600}")
+    private int maxImageDimension;
+
+    // Reorders the TRY_HARDER attempts by recent success rate and cost.
+    @Value("${scanner.decode.adaptive-order:true}")
+    private boolean adaptiveOrder;
+
+    // Fraction of scans that try the attempts in random order so the ranking can adapt.
+    @Value("${scanner.decode.exploration:0.05}")
+    private double exploration;
+
+    // Frames of a scan session whose signature differs from the last decoded frame by at most this
+    // much (mean absolute difference, 0-255) reuse its result.
+    @Value("${scanner.session.max-frame-difference:4}")
+    private int maxFrameDifference;
+
+    // How long a "not detected" result may be reused for near-identical frames.
+    @Value("${scanner.session.miss-reuse-ms:300}")
+    private long missReuseMillis;
+
+    // How long a found barcode may be reused for near-identical frames, each time after a fast decode
+    // of its region confirms it.
+    @Value("${scanner.session.hit-reuse-ms:2000}")
+    private long hitReuseMillis;
+
+    // Sessions without frames for this long are dropped.
+    @Value("${scanner.session.idle-timeout-ms:60000}")
+    private long sessionIdleMillis;
+
+    // Upper bound on tracked sessions; further streams are scanned without session state.
+    @Value("${scanner.session.max-sessions:10000}")
+    private int maxSessions;
+
+    // Budget for cached upload results, keyed by a digest of the uploaded bytes; 0 disables the cache.
+    @Value("${scanner.cache.max-bytes:4194304}")
+    private long resultCacheBytes;
+
+    // How long a cached upload result (found or not) stays valid.
+    @Value("${scanner.cache.ttl-ms:600000}")
+    private long resultCacheTtlMillis;
+
+    // Most images per batch scan.
+    @Value("${scanner.batch.max-images:50}")
+    private int maxBatchImages;
+
+    // Decode executor threads; 0 means one per available core.
+    @Value("${scanner.executor.threads:0}")
+    private int executorThreads;
+
+    // Scans that may wait for a decode thread; further scans are rejected at once.
+    @Value("${scanner.executor.queue-capacity:64}")
+    private int executorQueueCapacity;
+
+    // Longest a scan may wait for a decode thread before it is rejected (0 = no limit).
+    @Value("${scanner.executor.queue-timeout-ms:2000}")
+    private long executorQueueTimeoutMillis;
+
+    // Retry-After sent with rejected scans.
+    @Value("${scanner.executor.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    // Time budget of a scan when the client gives none (0 = none), and the most a client may ask for (0 = no cap).
+    @Value("${scanner.deadline.default-ms:1500}")
+    private long defaultDeadlineMillis;
+
+    @Value("${scanner.deadline.max-ms:10000}")
+    private long maxDeadlineMillis;
+
+    // Scans waiting for a decode thread from which new scans run the light plan (0 = one per decode thread).
+    @Value("${scanner.light-plan.queue-depth:0}")
+    private int lightPlanQueueDepth;
+
+    // Longest side of the images and frames decoded by the light plan (0 = no downscaling).
+    @Value("${scanner.light-plan.max-dimension:1024}")
+    private int lightPlanMaxDimension;
+
+    // Quality gate before the TRY_HARDER tier: frames whose sharpest tile has a lower Laplacian variance,
+    // or with a larger fraction of pixels clipped to black or white, are answered "retake" (0 = check off).
+    @Value("${scanner.quality.min-sharpness:400}")
+    private double minSharpness;
+
+    @Value("${scanner.quality.max-clipped:0.75}")
+    private double maxClipped;
+
+    // Image operations for the preprocessing variants: "java" or "opencv" (native, falls back to java).
+    @Value("${scanner.preprocessing.backend:java}")
+    private String preprocessingBackend;
+
+    private DecodeExecutor decodeExecutor;
+    private ContentCache<ScanResult> resultCache;
+    private VariantScheduler scheduler;
+
+    // How many frames each decode tier resolved.
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder fastTierHits = new LongAdder();
+    private final LongAdder hardTierScans = new LongAdder();
+    private final LongAdder hardTierHits = new LongAdder();
+    private final LongAdder reusedFrames = new LongAdder();
+    private final LongAdder regionHits = new LongAdder();
+    private final LongAdder cutShortScans = new LongAdder();
+    private final LongAdder lightPlanScans = new LongAdder();
+    private final Map<ImageQuality.Issue, LongAdder> retakes = new EnumMap<>(ImageQuality.Issue.class);
+
+    private final ConcurrentHashMap<String, ScanSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong lastSessionSweep = new AtomicLong(System.currentTimeMillis());
+
+    @PostConstruct
+    public void init() {
+        for (ImageQuality.Issue issue : ImageQuality.Issue.values()) {
+            retakes.put(issue, new LongAdder());
+        }
+        PreprocessingBackends.select(preprocessingBackend);
+        CustomizableThreadFactory decodeThreadFactory = new CustomizableThreadFactory("barcode-decode-");
+        decodeThreadFactory.setDaemon(true);
+        int decodeThreads = executorThreads > 0 ? executorThreads : Runtime.getRuntime().availableProcessors();
+        decodeExecutor = new DecodeExecutor(decodeThreads, executorQueueCapacity, executorQueueTimeoutMillis,
+                retryAfterSeconds, decodeThreadFactory);
+        if (lightPlanQueueDepth <= 0) {
+            lightPlanQueueDepth = decodeThreads;
+        }
+        scheduler = adaptiveOrder
+                ? CustomBarcodeProcessor.newVariantScheduler(exploration, !"sequential".equalsIgnoreCase(decodeMode))
+                : null;
+        resultCache = resultCacheBytes > 0
+                ? new ContentCache<>(resultCacheBytes, resultCacheTtlMillis,
+                        result -> result.isFound() ? 40 + 2 * result.getBarcode().length() : 0)
+                : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        decodeExecutor.shutdown();
+    }
+
+    /**
+     * Scans an uploaded image file read from the given stream. The bytes are hashed while they are
+     * read, and an upload identical to a recent one gets its cached result without decoding.
+     *
+     * @param deadlineMillis time budget from now, capped by configuration; 0 or less for the default
+     * @throws DecodeRejectedException if the decode executor has no room for the scan
+     */
+    public ScanResult scanUpload(InputStream in, long deadlineMillis) throws IOException {
+        ScanDeadline deadline = deadline(deadlineMillis);
+        Upload upload = readUpload(in);
+        ScanResult cached = cachedResult(upload);
+        if (cached != null) {
+            return cached;
+        }
+        return cacheResult(upload, decodeExecutor.call(() -> scanImage(upload.bytes, true, deadline)));
+    }
+
+    /**
+     * Scans several uploaded images in parallel on the decode executor. Each image is decoded on a
+     * single thread without the per-image race, since the batch itself keeps the cores busy.
+     * The batch is admitted as a whole: it is rejected if the queue cannot take all of its
+     * uncached images, or if its first image waits past the queue deadline. Each image gets the
+     * default scan deadline, counted from when its decoding starts.
+     *
+     * @return one result per upload, in order; a failed upload yields an invalid-image result.
+     * @throws DecodeRejectedException if the decode executor has no room for the batch
+     */
+    public List<ScanResult> scanUploads(List<? extends InputStreamSource> uploads) throws IOException {
+        if (uploads.size() > maxBatchImages) {
+            throw new IllegalArgumentException("At most " + maxBatchImages + " images can be scanned per batch.");
+        }
+        ScanResult[] results = new ScanResult[uploads.size()];
+        Upload[] read = new Upload[uploads.size()];
+        List<DecodeExecutor.Task<ScanResult>> tasks = new ArrayList<>(uploads.size());
+        try {
+            for (int i = 0; i < uploads.size(); i++) {
+                tasks.add(null);
+                try (InputStream in = uploads.get(i).getInputStream()) {
+                    read[i] = readUpload(in);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    results[i] = ScanResult.invalidImage();
+                    continue;
+                }
+                results[i] = cachedResult(read[i]);
+                if (results[i] == null) {
+                    byte[] imageBytes = read[i].bytes;
+                    tasks.set(i, decodeExecutor.submit(() -> scanImage(imageBytes, false, deadline(0))));
+                }
+            }
+            boolean first = true;
+            for (int i = 0; i < tasks.size(); i++) {
+                DecodeExecutor.Task<ScanResult> task = tasks.get(i);
+                if (task == null) {
+                    continue;
+                }
+                ScanResult result;
+                try {
+                    // Once the batch has a decode thread, its later images are not held to the deadline.
+                    result = first ? decodeExecutor.await(task) : decodeExecutor.join(task);
+                } catch (DecodeRejectedException e) {
+                    throw e;
+                } catch (IOException | RuntimeException e) {
+                    e.printStackTrace();
+                    result = ScanResult.invalidImage();
+                }
+                first = false;
+                results[i] = cacheResult(read[i], result);
+            }
+        } catch (DecodeRejectedException e) {
+            for (DecodeExecutor.Task<ScanResult> task : tasks) {
+                if (task != null) {
+                    decodeExecutor.cancel(task);
+                }
+            }
+            throw e;
+        }
+        return Arrays.asList(results);
+    }
+
+    public int getMaxBatchImages() {
+        return maxBatchImages;
+    }
+
+    private Upload readUpload(InputStream in) throws IOException {
+        if (resultCache == null) {
+            return new Upload(in.readAllBytes(), null);
+        }
+        MessageDigest digest = newDigest();
+        byte[] imageBytes = new DigestInputStream(in, digest).readAllBytes();
+        return new Upload(imageBytes, digest.digest());
+    }
+
+    private ScanResult cachedResult(Upload upload) {
+        return upload.key == null ? null : resultCache.get(upload.key, System.currentTimeMillis());
+    }
+
+    private ScanResult cacheResult(Upload upload, ScanResult result) {
+        if (upload.key != null && result.isValidImage() && !result.isCutShort()) {
+            resultCache.put(upload.key, result, System.currentTimeMillis());
+        }
+        return result;
+    }
+
+    /**
+     * Decodes an uploaded image on a decode thread. The image is decoded at reduced resolution
+     * first, and only when no barcode is found there is it decoded again at full resolution.
+     */
+    private ScanResult scanImage(byte[] imageBytes, boolean race, ScanDeadline deadline) throws IOException {
+        if (deadline.expired()) {
+            // The budget was used up waiting for a decode thread.
+            return miss(false, deadline);
+        }
+        boolean light = lightPlan();
+        ImageLoader.Decoded decoded = ImageLoader.decode(imageBytes, light ? lightPlanDimension() : maxImageDimension);
+        if (decoded == null) {
+            return ScanResult.invalidImage();
+        }
+        ScanResult scan = detectBarcode(decoded.getImage(), race, light, deadline);
+        if (scan == null && decoded.isSubsampled() && !light && !deadline.expired()) {
+            // Fine barcodes can be lost to subsampling; escalate to the full-resolution frame.
+            scan = detectBarcode(ImageLoader.read(imageBytes, 0), race, false, deadline);
+        }
+        return scan != null ? scan : miss(light, deadline);
+    }
+
+    /**
+     * Returns the deadline of a scan arriving now.
+     *
+     * @param requestedMillis budget asked for by the client, or 0 or less for the configured default
+     */
+    private ScanDeadline deadline(long requestedMillis) {
+        long millis = requestedMillis > 0 ? requestedMillis : defaultDeadlineMillis;
+        if (maxDeadlineMillis > 0 && (millis <= 0 || millis > maxDeadlineMillis)) {
+            millis = maxDeadlineMillis;
+        }
+        return ScanDeadline.in(millis);
+    }
+
+    /**
+     * Whether a scan starting now should run the light plan, because enough scans are queued
+     * behind it that the full search would push their latency up.
+     */
+    private boolean lightPlan() {
+        if (decodeExecutor.queueDepth() < lightPlanQueueDepth) {
+            return false;
+        }
+        lightPlanScans.increment();
+        return true;
+    }
+
+    private int lightPlanDimension() {
+        if (lightPlanMaxDimension <= 0) {
+            return maxImageDimension;
+        }
+        return maxImageDimension > 0 ? Math.min(maxImageDimension, lightPlanMaxDimension) : lightPlanMaxDimension;
+    }
+
+    /**
+     * Halves a frame until its longer side fits the light plan's maximum dimension.
+     */
+    private LumaImage downscaleForLightPlan(LumaImage gray, ScanContext context) {
+        while (lightPlanMaxDimension > 0 && Math.max(gray.getWidth(), gray.getHeight()) > lightPlanMaxDimension) {
+            gray = LumaKernels.downsample(gray, 2, context.plane(
+                    LumaKernels.downsampledSize(gray.getWidth(), 2), LumaKernels.downsampledSize(gray.getHeight(), 2)));
+        }
+        return gray;
+    }
+
+    /**
+     * A miss is cut short when the light plan skipped part of the search or the deadline stopped it.
+     */
+    private ScanResult miss(boolean light, ScanDeadline deadline) {
+        if (light || deadline.wasReached()) {
+            cutShortScans.increment();
+            return ScanResult.cutShort();
+        }
+        return ScanResult.notFound();
+    }
+
+    /**
+     * Finds every barcode in an uploaded image, e.g. a photo of a shelf or basket. The image is
+     * decoded at full resolution, since it may hold many small barcodes.
+     *
+     * @return the barcodes in the order they were found, or null if the image cannot be read.
+     * @throws DecodeRejectedException if the decode executor has no room for the scan
+     */
+    public List<DetectedBarcode> scanImageMultiple(byte[] imageBytes) throws IOException {
+        return decodeExecutor.call(() -> detectAll(imageBytes));
+    }
+
+    private List<DetectedBarcode> detectAll(byte[] imageBytes) throws IOException {
+        BufferedImage image = ImageLoader.read(imageBytes, 0);
+        if (image == null) {
+            return null;
+        }
+        scans.increment();
+        List<DetectedBarcode> barcodes = new ArrayList<>();
+        for (Result result : CustomBarcodeProcessor.detectAllBarcodes(LumaImage.fromBufferedImage(image))) {
+            barcodes.add(new DetectedBarcode(result.getText(), result.getBarcodeFormat().name(),
+                    CustomBarcodeProcessor.boundsOf(result)));
+        }
+        return barcodes;
+    }
+
+    /**
+     * Scans a raw luminance frame, such as the Y plane of an NV21/YUV_420_888 camera frame.
+     * The fast tier reads the frame in place; only if it fails is the plane compacted (when padded)
+     * for the TRY_HARDER tier.
+     *
+     * In a continuous scan session, a frame that looks the same as the last decoded frame of the
+     * session gets that frame's result without a full decode (see {@link ScanSession#reusableResult});
+     * otherwise the region where the session's last barcode was is decoded before the full frame.
+     *
+     * @param session        the client's scan session, or null to scan without session state
+     * @param frame          frame bytes; only the first height rows of rowStride bytes are read
+     * @param rowStride      distance between rows in bytes, at least width
+     * @param deadlineMillis time budget from now, capped by configuration; 0 or less for the default
+     * @throws DecodeRejectedException if the frame has to be decoded and the decode executor has no room
+     */
+    public ScanResult scanFrame(ScanSession session, byte[] frame, int width, int height, int rowStride,
+                                long deadlineMillis) throws IOException {
+        ScanDeadline deadline = deadline(deadlineMillis);
+        if (width <= 0 || height <= 0 || rowStride < width
+                || (long) rowStride * (height - 1) + width > frame.length) {
+            return ScanResult.invalidImage();
+        }
+        long now = System.currentTimeMillis();
+        byte[] signature = null;
+        Rectangle previousRegion = null;
+        if (session != null) {
+            signature = FrameSignature.of(frame, rowStride, width, height);
+            ScanResult reused = session.reusableResult(width, height, signature,
+                    LumaLuminanceSource.forPlane(frame, rowStride, width, height),
+                    maxFrameDifference, missReuseMillis, hitReuseMillis, now);
+            if (reused != null) {
+                reusedFrames.increment();
+                return reused;
+            }
+            previousRegion = session.getRegion(width, height);
+        }
+        byte[] frameSignature = signature;
+        Rectangle frameRegion = previousRegion;
+        return decodeExecutor.call(() -> decodeFrame(session, frame, width, height, rowStride,
+                frameSignature, frameRegion, now, deadline));
+    }
+
+    private ScanResult decodeFrame(ScanSession session, byte[] frame, int width, int height, int rowStride,
+                                   byte[] signature, Rectangle previousRegion, long now, ScanDeadline deadline) {
+        if (deadline.expired()) {
+            // The budget was used up waiting for a decode thread.
+            return miss(false, deadline);
+        }
+        boolean light = lightPlan();
+        scans.increment();
+        LumaLuminanceSource source = LumaLuminanceSource.forPlane(frame, rowStride, width, height);
+        Result result = null;
+        Rectangle region = null;
+        if (previousRegion != null) {
+            result = CustomBarcodeProcessor.tryDecodeFastResult(source.crop(
+                    previousRegion.x, previousRegion.y, previousRegion.width, previousRegion.height));
+            if (result != null) {
+                regionHits.increment();
+                region = CustomBarcodeProcessor.regionAround(result, previousRegion.x, previousRegion.y, width, height);
+            }
+        }
+        if (result == null) {
+            result = CustomBarcodeProcessor.tryDecodeFastResult(source);
+            if (result != null) {
+                region = CustomBarcodeProcessor.regionAround(result, 0, 0, width, height);
+            }
+        }
+        ScanResult scan;
+        if (result != null) {
+            fastTierHits.increment();
+            scan = ScanResult.found(result.getText());
+        } else {
+            try (ScanContext context = ScanContext.open()) {
+                LumaImage gray = LumaImage.fromPlane(frame, width, height, rowStride, context);
+                scan = detectHard(light ? downscaleForLightPlan(gray, context) : gray, true, light, deadline);
+            }
+            if (scan == null) {
+                scan = miss(light, deadline);
+            }
+        }
+        if (session != null) {
+            session.update(width, height, signature, scan, region, now);
+        }
+        return scan;
+    }
+
+    /**
+     * Returns the scan session with the given id, creating it on first use.
+     *
+     * @return the session, or null if no id is given or the session limit is reached
+     */
+    public ScanSession session(String sessionId) {
+        if (sessionId == null || sessionId.isEmpty()) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        long lastSweep = lastSessionSweep.get();
+        if (now - lastSweep > sessionIdleMillis && lastSessionSweep.compareAndSet(lastSweep, now)) {
+            sessions.values().removeIf(s -> now - s.getLastSeen() > sessionIdleMillis);
+        }
+        ScanSession session = sessions.get(sessionId);
+        if (session == null) {
+            if (sessions.size() >= maxSessions) {
+                return null;
+            }
+            session = sessions.computeIfAbsent(sessionId, ScanSession::new);
+        }
+        session.touch(now);
+        return session;
+    }
+
+    /**
+     * @param race  whether the TRY_HARDER tier may race attempts on idle decode threads (when configured)
+     * @param light whether the TRY_HARDER tier runs the light plan
+     * @return the barcode found, a retake result from the quality gate, or null if nothing was found
+     */
+    private ScanResult detectBarcode(BufferedImage image, boolean race, boolean light, ScanDeadline deadline) {
+        if (image == null) {
+            return null;
+        }
+        scans.increment();
+        // The grayscale frame and every working plane of the scan are reused by the next scan on this thread.
+        try (ScanContext context = ScanContext.open()) {
+            LumaImage gray = LumaImage.fromBufferedImage(image, context);
+            // Tier one: the fast reader on the raw grayscale frame (or its pyramid).
+            String barcode = pyramid
+                    ? CustomBarcodeProcessor.tryDecodePyramid(gray)
+                    : CustomBarcodeProcessor.tryDecodeFast(gray);
+            if (barcode != null) {
+                fastTierHits.increment();
+                return ScanResult.found(barcode);
+            }
+            return detectHard(gray, race, light, deadline);
+        }
+    }
+
+    /**
+     * Tier two: TRY_HARDER on the preprocessed variants, sequentially or as a parallel race.
+     * The light plan never races, and neither does a scan while every decode thread is busy,
+     * since the cores are taken by other scans already.
+     * Frames that fail the quality gate skip the tier and are answered "retake".
+     *
+     * @return the barcode found, a retake result, or null if nothing was found
+     */
+    private ScanResult detectHard(LumaImage gray, boolean race, boolean light, ScanDeadline deadline) {
+        if (deadline.expired()) {
+            return null;
+        }
+        ImageQuality.Issue issue = ImageQuality.assess(gray, minSharpness, maxClipped);
+        if (issue != null) {
+            retakes.get(issue).increment();
+            return ScanResult.retake(issue.code());
+        }
+        hardTierScans.increment();
+        boolean sequential = light || !race || "sequential".equalsIgnoreCase(decodeMode)
+                || decodeExecutor.idleThreads() == 0;
+        String barcode = sequential
+                ? CustomBarcodeProcessor.detectBarcodeHard(gray, scheduler, deadline, light)
+                : CustomBarcodeProcessor.detectBarcodeParallel(gray, decodeExecutor.helpers(), parallelism, scheduler, deadline);
+        if (barcode == null) {
+            return null;
+        }
+        hardTierHits.increment();
+        return ScanResult.found(barcode);
+    }
+
+    private static final class Upload {
+        final byte[] bytes;
+        // Digest of the bytes, or null when results are not cached.
+        final byte[] key;
+
+        Upload(byte[] bytes, byte[] key) {
+            this.bytes = bytes;
+            this.key = key;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns per-tier counters: how many frames were scanned, how many the fast tier resolved,
+     * and how often the TRY_HARDER tier was needed and succeeded, how many scans ran the light
+     * plan or missed after being cut short, how many frames the quality gate sent back per reason,
+     * plus per-attempt decoder stats.
+     */
+    public Map<String, Object> getStats() {
+        long total = scans.sum();
+        long fast = fastTierHits.sum();
+        long hard = hardTierScans.sum();
+        long hardHits = hardTierHits.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("frames", total);
+        stats.put("fastTierHits", fast);
+        stats.put("fastTierHitRate", total == 0 ? 0.0 : (double) fast / total);
+        stats.put("hardTierFrames", hard);
+        stats.put("hardTierHits", hardHits);
+        stats.put("hardTierHitRate", hard == 0 ? 0.0 : (double) hardHits / hard);
+        stats.put("sessions", sessions.size());
+        stats.put("reusedFrames", reusedFrames.sum());
+        stats.put("regionHits", regionHits.sum());
+        stats.put("cutShortScans", cutShortScans.sum());
+        stats.put("lightPlanScans", lightPlanScans.sum());
+        Map<String, Object> retakeCounts = new LinkedHashMap<>();
+        retakes.forEach((issue, count) -> retakeCounts.put(issue.code(), count.sum()));
+        stats.put("retakes", retakeCounts);
+        stats.put("preprocessingBackend", PreprocessingBackends.active().getName());
+        stats.put("decoder", BarcodeDecoder.getStats());
+        stats.put("executor", decodeExecutor.getStats());
+        if (scheduler != null) {
+            stats.put("variants", scheduler.getStats());
+        }
+        if (resultCache != null) {
+            stats.put("resultCache", resultCache.getStats());
+        }
+        return stats;
+    }
+}
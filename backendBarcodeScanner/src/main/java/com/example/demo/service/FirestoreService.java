@@ -1,29 +1,63 @@
 package com.example.demo.service;
 
+import com.example.demo.model.Recipe;
 import com.example.demo.model.RecipeMatch;
+import com.example.demo.model.RecipeRanking;
 import com.example.demo.util.CacheKeyUtil;
+import com.example.demo.util.IngredientDictionary;
+import com.example.demo.util.Pantry;
+import com.example.demo.util.RecipeCatalog;
+import com.example.demo.util.RecipeIndex;
 import com.google.api.core.ApiFuture;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.firestore.*;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.cloud.FirestoreClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 @Service
 public class FirestoreService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(FirestoreService.class);
+
     private Firestore db;
 
+    // Serve recipe lookups from an in-memory copy of the recipes collection kept live by a snapshot listener.
+    @Value("${recipes.catalog.enabled:true}")
+    private boolean catalogEnabled;
+
+    // How long startup waits for the first catalog load; lookups query Firestore until it arrives.
+    @Value("${recipes.catalog.startup-wait-ms:10000}")
+    private long catalogStartupWaitMillis;
+
+    // Delay before listening again after the snapshot listener fails.
+    @Value("${recipes.catalog.retry-delay-ms:30000}")
+    private long catalogRetryDelayMillis;
+
+    @Autowired(required = false)
+    private CacheManager cacheManager;
+
+    private RecipeCatalog catalog;
+
     // Ingredient weights mapping.
     private static final Map<String, Double> INGREDIENT_WEIGHTS = new HashMap<>();
     static {
@@ -51,6 +85,22 @@ public class FirestoreService {
         NORMALIZED_SYNONYMS.put("beef", new HashSet<>(Arrays.asList("ground beef")));
     }
 
+    // Every name of a synonym group (canonical name and synonyms), keyed by each of those names.
+    private static final Map<String, Set<String>> SYNONYM_GROUPS = new HashMap<>();
+    static {
+        for (Map.Entry<String, Set<String>> entry : NORMALIZED_SYNONYMS.entrySet()) {
+            Set<String> group = new LinkedHashSet<>();
+            group.add(entry.getKey());
+            group.addAll(entry.getValue());
+            for (String name : group) {
+                SYNONYM_GROUPS.putIfAbsent(name, group);
+            }
+        }
+    }
+
+    // Firestore's cap on the values of one array-contains-any filter.
+    private static final int ARRAY_CONTAINS_ANY_LIMIT = 30;
+
     @PostConstruct
     public void init() throws IOException {
         if (FirebaseApp.getApps().isEmpty()) {
@@ -71,6 +121,55 @@ public class FirestoreService {
         }
 
         db = FirestoreClient.getFirestore();
+
+        if (catalogEnabled) {
+            catalog = new RecipeCatalog(db.collection("recipes"), NORMALIZED_SYNONYMS, catalogRetryDelayMillis, this::evictSuggestions);
+            catalog.start();
+            try {
+                if (!catalog.awaitLoaded(catalogStartupWaitMillis)) {
+                    LOG.warn("Recipe catalog not loaded after {} ms; querying Firestore until it is.",
+                            catalogStartupWaitMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (catalog != null) {
+            catalog.close();
+        }
+    }
+
+    /**
+     * Drops cached suggestions, which were scored against an older catalog version.
+     */
+    private void evictSuggestions() {
+        if (cacheManager == null) {
+            return;
+        }
+        Cache cache = cacheManager.getCache("recipeSuggestions");
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Version of the recipe catalog that lookups are served from, or 0 while they go to Firestore.
+     * Part of the suggestion cache key, so a result scored against an older version is never returned.
+     */
+    public long getCatalogVersion() {
+        RecipeIndex index = catalog == null ? null : catalog.current();
+        return index == null ? 0 : index.getVersion();
+    }
+
+    /**
+     * Returns the recipe catalog counters, or null when the catalog is disabled.
+     */
+    public Map<String, Object> getCatalogStats() {
+        return catalog == null ? null : catalog.getStats();
     }
 
 
@@ -79,98 +178,156 @@ public class FirestoreService {
         return future.get();
     }
 
-    public List<QueryDocumentSnapshot> getRecipesByIngredients(List<String> ingredients) throws Exception {
-        if (ingredients == null || ingredients.isEmpty()) {
-            return new ArrayList<>();
+    /**
+     * Fetches the products for several barcodes in one batched read.
+     *
+     * @return the product snapshot for each distinct barcode, keyed by barcode; missing products
+     *         are included as snapshots that do not exist.
+     */
+    public Map<String, DocumentSnapshot> getProductsByBarcodes(Collection<String> barcodes) throws Exception {
+        Map<String, DocumentSnapshot> products = new HashMap<>();
+        if (barcodes == null || barcodes.isEmpty()) {
+            return products;
+        }
+        CollectionReference productsRef = db.collection("products");
+        DocumentReference[] refs = barcodes.stream()
+                .distinct()
+                .map(productsRef::document)
+                .toArray(DocumentReference[]::new);
+        ApiFuture<List<DocumentSnapshot>> future = db.getAll(refs);
+        for (DocumentSnapshot doc : future.get()) {
+            products.put(doc.getId(), doc);
         }
-        ApiFuture<QuerySnapshot> future = db.collection("recipes")
-                .whereArrayContainsAny("ingredients", ingredients)
-                .get();
-        return future.get().getDocuments();
+        return products;
     }
 
-    //Fuzzy Matching Helpers
-
-    private int levenshteinDistance(String s, String t) {
-        int[][] d = new int[s.length() + 1][t.length() + 1];
-        for (int i = 0; i <= s.length(); i++) {
-            d[i][0] = i;
-        }
-        for (int j = 0; j <= t.length(); j++) {
-            d[0][j] = j;
+    /**
+     * Returns the recipes using at least one of the given ingredients or one of their synonyms, in
+     * document id order. Served from the in-memory catalog once it is loaded, where ingredients are
+     * compared in normalized form; until then, and when the catalog is disabled, from Firestore.
+     */
+    public List<Recipe> getRecipesByIngredients(List<String> ingredients) throws Exception {
+        if (ingredients == null || ingredients.isEmpty()) {
+            return new ArrayList<>();
         }
-        for (int i = 1; i <= s.length(); i++) {
-            for (int j = 1; j <= t.length(); j++) {
-                int cost = s.charAt(i - 1) == t.charAt(j - 1) ? 0 : 1;
-                d[i][j] = Math.min(
-                    Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1),
-                    d[i - 1][j - 1] + cost
-                );
-            }
+        Set<String> expanded = expandSynonyms(ingredients);
+        RecipeIndex index = catalog == null ? null : catalog.current();
+        if (index != null) {
+            return index.withAnyIngredient(expanded);
         }
-        return d[s.length()][t.length()];
+        List<Recipe> recipes = queryRecipesByIngredients(expanded);
+        recipes.sort(Comparator.comparing(Recipe::getId));
+        return recipes;
     }
 
-    private boolean isFuzzyMatch(String a, String b, int threshold) {
-        return levenshteinDistance(a, b) <= threshold;
+    /**
+     * Returns the ingredients as given, their normalized forms, and the other names of their
+     * synonym groups.
+     */
+    private static Set<String> expandSynonyms(Collection<String> ingredients) {
+        Set<String> expanded = new LinkedHashSet<>();
+        for (String ingredient : ingredients) {
+            expanded.add(ingredient);
+            String normalized = Recipe.normalize(ingredient);
+            expanded.add(normalized);
+            expanded.addAll(SYNONYM_GROUPS.getOrDefault(normalized, Collections.emptySet()));
+        }
+        return expanded;
     }
 
     /**
-     * Determines if a recipe ingredient is matched by the user's ingredients.
-     * Uses direct, fuzzy and synonym matching.
+     * Queries the recipes containing any of the given values. array-contains-any takes at most
+     * {@value #ARRAY_CONTAINS_ANY_LIMIT} values, so the values are split into chunks whose queries
+     * all run at once. Each chunk's documents are parsed as soon as that chunk arrives, skipping
+     * recipes an earlier chunk returned already.
+     *
+     * @return the recipes in the order their chunks arrived
      */
-    private boolean isIngredientMatched(String recipeIngredient, Set<String> normalizedUserIngredients) {
-        String normRecipe = recipeIngredient.toLowerCase().trim();
-        // Direct and fuzzy match.
-        for (String userIng : normalizedUserIngredients) {
-            if (userIng.equals(normRecipe) || isFuzzyMatch(normRecipe, userIng, 2)) {
-                return true;
-            }
+    private List<Recipe> queryRecipesByIngredients(Collection<String> values) throws Exception {
+        List<String> list = new ArrayList<>(values);
+        List<ApiFuture<QuerySnapshot>> futures = new ArrayList<>();
+        BlockingQueue<ApiFuture<QuerySnapshot>> arrived = new LinkedBlockingQueue<>();
+        for (int from = 0; from < list.size(); from += ARRAY_CONTAINS_ANY_LIMIT) {
+            List<String> chunk = list.subList(from, Math.min(list.size(), from + ARRAY_CONTAINS_ANY_LIMIT));
+            ApiFuture<QuerySnapshot> future = db.collection("recipes")
+                    .whereArrayContainsAny("ingredients", new ArrayList<>(chunk))
+                    .get();
+            future.addListener(() -> arrived.add(future), Runnable::run);
+            futures.add(future);
         }
-        // Synonym matching.
-        for (Map.Entry<String, Set<String>> entry : NORMALIZED_SYNONYMS.entrySet()) {
-            String canonical = entry.getKey().toLowerCase().trim();
-            Set<String> synSet = entry.getValue();
-            if (normRecipe.equals(canonical) || synSet.contains(normRecipe)) {
-                for (String userIng : normalizedUserIngredients) {
-                    if (userIng.equals(canonical) || synSet.contains(userIng) || isFuzzyMatch(userIng, canonical, 2)) {
-                        return true;
+        Set<String> seen = new HashSet<>();
+        List<Recipe> recipes = new ArrayList<>();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                for (QueryDocumentSnapshot doc : arrived.take().get().getDocuments()) {
+                    if (seen.add(doc.getId())) {
+                        recipes.add(Recipe.fromDocument(doc));
                     }
                 }
             }
+        } catch (Exception e) {
+            for (ApiFuture<QuerySnapshot> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
         }
-        return false;
+        return recipes;
     }
 
     /**
      * Multi dimensional scoring for recipe suggestions.
-     * The results are cached to avoid recalculating frequent queries.
+     * The results are cached to avoid recalculating frequent queries, and later pages of a query
+     * are served from the cached ranking.
+     *
+     * Candidates come from the in-memory catalog once it is loaded: every recipe using an
+     * ingredient the user has, misspellings included. Until then, and when the catalog is disabled,
+     * they come from Firestore, which can only be asked for the user's ingredients and their
+     * synonyms verbatim. That fallback returns fewer results: a recipe whose ingredients only match
+     * a misspelled user ingredient (e.g. "tomato" for "tomatoe") is not fetched, although recipes
+     * that are fetched are scored with the same fuzzy matching.
      * 
      * @param userIngredients   the user's scanned ingredients.
      * @param bannedIngredients ingredients to filter out.
      * @param maxTime           maximum allowed total time (prep + cook) in minutes (or null).
      * @param maxCalories       maximum allowed calories (or null).
-     * @return List of RecipeMatch objects sorted by final score.
+     * @return the matches, ranked by final score a page at a time.
      */
-    @Cacheable(value = "recipeSuggestions", key = "T(com.example.demo.util.CacheKeyUtil).generateKey(#userIngredients, #bannedIngredients, #maxTime, #maxCalories)")
-    public List<RecipeMatch> getRecipeSuggestions(
+    @Cacheable(value = "recipeSuggestions", key = "T(com.example.demo.util.CacheKeyUtil).generateKey(#userIngredients, #bannedIngredients, #maxTime, #maxCalories) + '_' + #root.target.catalogVersion")
+    public RecipeRanking getRecipeSuggestions(
             List<String> userIngredients,
             List<String> bannedIngredients,
             Long maxTime,
             Long maxCalories
     ) throws Exception {
         if (userIngredients == null || userIngredients.isEmpty()) {
-            return Collections.emptyList();
+            return new RecipeRanking(Collections.emptyList());
         }
 
-        // Pre-compute normalized user ingredients.
-        Set<String> normalizedUserIngredients = new HashSet<>();
-        for (String ing : userIngredients) {
-            normalizedUserIngredients.add(ing.toLowerCase().trim());
+        List<String> banned = bannedIngredients == null ? Collections.emptyList() : bannedIngredients;
+        RecipeIndex index = catalog == null ? null : catalog.current();
+        if (index == null) {
+            // One index, and so one ingredient dictionary, over the recipes of every chunk.
+            index = new RecipeIndex(0, queryRecipesByIngredients(expandSynonyms(userIngredients)), NORMALIZED_SYNONYMS);
         }
-
-        List<QueryDocumentSnapshot> docs = getRecipesByIngredients(userIngredients);
         List<RecipeMatch> matches = new ArrayList<>();
+        score(index, new Pantry(index.getDictionary(), userIngredients, banned), maxTime, maxCalories, matches);
+        return new RecipeRanking(matches);
+    }
+
+    /**
+     * Scores the recipes of the index that use any ingredient the pantry matches and adds those
+     * that pass the filters to {@code matches}.
+     */
+    private void score(RecipeIndex index, Pantry pantry, Long maxTime, Long maxCalories, List<RecipeMatch> matches) {
+        IngredientDictionary dictionary = index.getDictionary();
+        double[] weights = new double[dictionary.size()];
+        Arrays.fill(weights, 1.0);
+        for (Map.Entry<String, Double> entry : INGREDIENT_WEIGHTS.entrySet()) {
+            int id = dictionary.id(entry.getKey());
+            if (id >= 0) {
+                weights[id] = entry.getValue();
+            }
+        }
 
         // Define weight constants.
         final double penaltyFactor = 0.5;
@@ -180,44 +337,34 @@ public class FirestoreService {
         final double minMatchRatio = 0.3;
 
         // Process each candidate recipe.
-        for (QueryDocumentSnapshot doc : docs) {
-            List<String> recipeIngredients = (List<String>) doc.get("ingredients");
-            if (recipeIngredients == null) {
-                continue;
-            }
+        for (int ordinal : index.candidates(pantry.matchedIds())) {
+            Recipe recipe = index.recipe(ordinal);
+            int[] ingredientIds = index.ingredientIds(ordinal);
+            if (ingredientIds.length == 0) continue;
 
             // Early check: banned ingredients.
-            boolean containsBanned = recipeIngredients.stream()
-                    .anyMatch(ing -> bannedIngredients.stream()
-                            .anyMatch(b -> ing.toLowerCase().contains(b.toLowerCase().trim())));
-            if (containsBanned) continue;
+            if (pantry.anyBanned(ingredientIds)) continue;
 
             // Check time and calorie constraints.
-            long totalTime = Optional.ofNullable(doc.getLong("preparationTime")).orElse(0L)
-                    + Optional.ofNullable(doc.getLong("cookingTime")).orElse(0L);
+            long totalTime = recipe.getTotalTime();
             if (maxTime != null && totalTime > maxTime) continue;
-            long recipeCalories = Optional.ofNullable(doc.getLong("calories")).orElse(0L);
+            long recipeCalories = Optional.ofNullable(recipe.getCalories()).orElse(0L);
             if (maxCalories != null && recipeCalories > maxCalories) continue;
 
             int matchedCount = 0;
             double weightedMatchedScore = 0.0;
             double weightedMissingScore = 0.0;
-            List<String> missingIngredients = new ArrayList<>();
 
-            // Single pass: compute match counts and collect missing ingredients.
-            for (String ing : recipeIngredients) {
-                double weight = INGREDIENT_WEIGHTS.getOrDefault(ing.toLowerCase(), 1.0);
-                if (normalizedUserIngredients.contains(ing.toLowerCase().trim()) ||
-                    isIngredientMatched(ing, normalizedUserIngredients)) {
+            // Single pass over ingredient ids: match counts and weights, no allocation.
+            for (int id : ingredientIds) {
+                if (pantry.matches(id)) {
                     matchedCount++;
-                    weightedMatchedScore += weight;
+                    weightedMatchedScore += weights[id];
                 } else {
-                    weightedMissingScore += weight;
-                    missingIngredients.add(ing);
+                    weightedMissingScore += weights[id];
                 }
             }
-            if (recipeIngredients.isEmpty()) continue;
-            double matchRatio = (double) matchedCount / recipeIngredients.size();
+            double matchRatio = (double) matchedCount / ingredientIds.length;
             if (matchRatio < minMatchRatio) continue;
 
             double baseScore = weightedMatchedScore - penaltyFactor * weightedMissingScore;
@@ -237,20 +384,27 @@ public class FirestoreService {
             }
 
             // Determine match category.
-            Set<String> normalizedRecipeSet = new HashSet<>();
-            for (String ing : recipeIngredients) {
-                normalizedRecipeSet.add(ing.toLowerCase().trim());
-            }
+            int[] distinctIds = index.distinctIngredientIds(ordinal);
             int matchCategory = 3;
-            if (normalizedUserIngredients.containsAll(normalizedRecipeSet)) {
+            if (pantry.covers(distinctIds)) {
                 matchCategory = 1;
-            } else if (normalizedRecipeSet.containsAll(normalizedUserIngredients)) {
+            } else if (pantry.coveredBy(distinctIds)) {
                 matchCategory = 2;
             }
 
-            matches.add(new RecipeMatch(doc, matchedCount, recipeIngredients.size(), missingIngredients, finalScore, matchCategory));
+            List<String> recipeIngredients = recipe.getIngredients();
+            List<String> matchedIngredients = new ArrayList<>(matchedCount);
+            List<String> missingIngredients = new ArrayList<>(ingredientIds.length - matchedCount);
+            for (int i = 0; i < ingredientIds.length; i++) {
+                if (pantry.matches(ingredientIds[i])) {
+                    matchedIngredients.add(recipeIngredients.get(i));
+                } else {
+                    missingIngredients.add(recipeIngredients.get(i));
+                }
+            }
+
+            matches.add(new RecipeMatch(recipe, matchedCount, ingredientIds.length, matchedIngredients, missingIngredients,
+                    finalScore, matchCategory));
         }
-        matches.sort((a, b) -> Double.compare(b.getWeightedScore(), a.getWeightedScore()));
-        return matches;
     }
 }
@@ -0,0 +1,163 @@
+package com.example.demo.util;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Two-tier ZXing decoding with shared, immutable hint configuration.
+ *
+ * The FAST tier decodes without TRY_HARDER and is meant for the raw grayscale frame; the HARD tier
+ * uses TRY_HARDER and is meant for the preprocessed variants once the fast tier has failed.
+ * Each thread keeps one pre-configured reader per tier, because ZXing readers hold per-decode
+ * scratch state and are not thread-safe. Attempts and hits are counted per tier.
+ */
+public final class BarcodeDecoder {
+
+    public enum Tier {
+        FAST,
+        HARD
+    }
+
+    // Supports UPC, EAN, Code 128, and Interleaved 2 of 5 (ITF) formats.
+    private static final List<BarcodeFormat> FORMATS = Collections.unmodifiableList(Arrays.asList(
+            BarcodeFormat.UPC_A,
+            BarcodeFormat.EAN_8,
+            BarcodeFormat.EAN_13,
+            BarcodeFormat.CODE_128,
+            BarcodeFormat.ITF));
+
+    private static final Map<DecodeHintType, Object> FAST_HINTS = hints(false);
+    private static final Map<DecodeHintType, Object> HARD_HINTS = hints(true);
+
+    private static final ThreadLocal<MultiFormatReader> FAST_READER = ThreadLocal.withInitial(() -> reader(FAST_HINTS));
+    private static final ThreadLocal<MultiFormatReader> HARD_READER = ThreadLocal.withInitial(() -> reader(HARD_HINTS));
+
+    private static final LongAdder[] ATTEMPTS = {new LongAdder(), new LongAdder()};
+    private static final LongAdder[] HITS = {new LongAdder(), new LongAdder()};
+
+    private BarcodeDecoder() {
+    }
+
+    /**
+     * Decodes a barcode from the given luminance source using the reader of the given tier.
+     *
+     * @return the decoded result, or null if no barcode is found.
+     */
+    public static Result decode(LuminanceSource source, Tier tier) {
+        ATTEMPTS[tier.ordinal()].increment();
+        MultiFormatReader reader = tier == Tier.FAST ? FAST_READER.get() : HARD_READER.get();
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
+        try {
+            Result result = reader.decodeWithState(bitmap);
+            HITS[tier.ordinal()].increment();
+            return result;
+        } catch (NotFoundException e) {
+            return null;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            reader.reset();
+        }
+    }
+
+    /**
+     * Decodes every barcode in the given luminance source with the HARD tier reader. ZXing's
+     * {@link GenericMultipleBarcodeReader} decodes one barcode, then searches the areas around it
+     * for more.
+     *
+     * @return the decoded results, or an empty array if no barcode is found.
+     */
+    public static Result[] decodeMultiple(LuminanceSource source) {
+        ATTEMPTS[Tier.HARD.ordinal()].increment();
+        MultiFormatReader reader = HARD_READER.get();
+        // Reuses the thread's configured reader instead of letting every decode call set the hints again.
+        Reader configured = new Reader() {
+            @Override
+            public Result decode(BinaryBitmap image) throws NotFoundException {
+                return reader.decodeWithState(image);
+            }
+
+            @Override
+            public Result decode(BinaryBitmap image, Map<DecodeHintType, ?> hints) throws NotFoundException {
+                return reader.decodeWithState(image);
+            }
+
+            @Override
+            public void reset() {
+                reader.reset();
+            }
+        };
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
+        try {
+            Result[] results = new GenericMultipleBarcodeReader(configured).decodeMultiple(bitmap, HARD_HINTS);
+            HITS[Tier.HARD.ordinal()].increment();
+            return results;
+        } catch (NotFoundException e) {
+            return new Result[0];
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new Result[0];
+        } finally {
+            reader.reset();
+        }
+    }
+
+    /**
+     * Decodes a barcode and returns only its text.
+     *
+     * @return the decoded barcode string, or null if none is found.
+     */
+    public static String decodeText(LuminanceSource source, Tier tier) {
+        Result result = decode(source, tier);
+        return result == null ? null : result.getText();
+    }
+
+    /**
+     * Returns the decode attempts, hits and hit rate of each tier since startup.
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Tier tier : Tier.values()) {
+            long attempts = ATTEMPTS[tier.ordinal()].sum();
+            long hits = HITS[tier.ordinal()].sum();
+            Map<String, Object> tierStats = new LinkedHashMap<>();
+            tierStats.put("attempts", attempts);
+            tierStats.put("hits", hits);
+            tierStats.put("hitRate", attempts == 0 ? 0.0 : (double) hits / attempts);
+            stats.put(tier.name().toLowerCase(), tierStats);
+        }
+        return stats;
+    }
+
+    private static Map<DecodeHintType, Object> hints(boolean tryHarder) {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, FORMATS);
+        if (tryHarder) {
+            hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        }
+        return Collections.unmodifiableMap(hints);
+    }
+
+    private static MultiFormatReader reader(Map<DecodeHintType, Object> hints) {
+        MultiFormatReader reader = new MultiFormatReader();
+        reader.setHints(hints);
+        return reader;
+    }
+}
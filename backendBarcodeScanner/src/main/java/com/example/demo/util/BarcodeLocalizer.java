@@ -0,0 +1,195 @@
+package com.example.demo.util;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds candidate barcode regions in a frame so that the decoder can work on small crops
+ * instead of the whole photo.
+ *
+ * The frame is shrunk to a working size, and the Sobel gradient difference is computed.
+ * That map is smoothed and thresholded, and a morphological closing merges the individual
+ * bars into solid blobs while an opening removes small specks. The bounding boxes of the
+ * remaining connected components, largest first, are the candidates. All working images and
+ * masks are scratch of the calling thread's {@link ScanContext}.
+ */
+public final class BarcodeLocalizer {
+
+    // Long side of the working image the analysis runs on.
+    private static final int WORK_SIZE = 512;
+    // Smoothing radius and morphology sizes, in working-image pixels.
+    private static final int SMOOTH_RADIUS = 3;
+    private static final int CLOSE_RADIUS = 7;
+    private static final int OPEN_RADIUS = 2;
+    // Gradient-difference floor below which nothing counts as a bar edge.
+    private static final int MIN_THRESHOLD = 24;
+    // Smallest candidate, as a fraction of the working image area.
+    private static final double MIN_AREA_FRACTION = 0.002;
+    private static final int MAX_CANDIDATES = 3;
+
+    private BarcodeLocalizer() {
+    }
+
+    /**
+     * Returns candidate barcode rectangles in frame coordinates, largest first.
+     * The rectangles are padded to include the quiet zone and clipped to the frame.
+     */
+    public static List<Rectangle> locate(LumaImage gray) {
+        return locate(gray, MAX_CANDIDATES);
+    }
+
+    /**
+     * Same as {@link #locate(LumaImage)}, but returns up to the given number of candidates,
+     * e.g. for frames expected to hold several barcodes.
+     */
+    public static List<Rectangle> locate(LumaImage gray, int maxCandidates) {
+        int factor = Math.max(1, (Math.max(gray.getWidth(), gray.getHeight()) + WORK_SIZE - 1) / WORK_SIZE);
+        int width = LumaKernels.downsampledSize(gray.getWidth(), factor);
+        int height = LumaKernels.downsampledSize(gray.getHeight(), factor);
+        if (width < 16 || height < 16) {
+            return new ArrayList<>();
+        }
+
+        ScanContext context = ScanContext.current();
+        LumaImage small = LumaKernels.downsample(gray, factor, context.scratchPlane(0, width, height));
+        LumaImage gradient = LumaKernels.gradientDifference(small, context.scratchPlane(1, width, height));
+        LumaImage response = LumaKernels.boxBlur(gradient, SMOOTH_RADIUS, context.scratchPlane(2, width, height));
+        int n = width * height;
+        // Closing and opening ping-pong between two masks, with a third for the horizontal pass.
+        boolean[] mask = context.scratchMask(0, n);
+        boolean[] other = context.scratchMask(1, n);
+        boolean[] horizontal = context.scratchMask(2, n);
+        threshold(response, mask);
+        dilate(mask, other, horizontal, width, height, CLOSE_RADIUS);
+        erode(other, mask, horizontal, width, height, CLOSE_RADIUS);
+        erode(mask, other, horizontal, width, height, OPEN_RADIUS);
+        dilate(other, mask, horizontal, width, height, OPEN_RADIUS);
+
+        List<int[]> components = components(mask, other, context.scratchInts(ScanContext.INTS_STACK, n),
+                width, height, (int) Math.ceil(MIN_AREA_FRACTION * width * height));
+        components.sort((a, b) -> Integer.compare(b[4], a[4]));
+
+        List<Rectangle> candidates = new ArrayList<>();
+        for (int[] c : components) {
+            if (candidates.size() == maxCandidates) {
+                break;
+            }
+            int boxWidth = c[2] - c[0] + 1;
+            int boxHeight = c[3] - c[1] + 1;
+            int padX = boxWidth / 5 + 2;
+            int padY = boxHeight / 5 + 2;
+            int left = Math.max(0, (c[0] - padX) * factor);
+            int top = Math.max(0, (c[1] - padY) * factor);
+            int right = Math.min(gray.getWidth(), (c[2] + 1 + padX) * factor);
+            int bottom = Math.min(gray.getHeight(), (c[3] + 1 + padY) * factor);
+            candidates.add(new Rectangle(left, top, right - left, bottom - top));
+        }
+        return candidates;
+    }
+
+    /**
+     * Marks pixels whose response is well above the frame average (mean + 2 standard deviations).
+     */
+    private static void threshold(LumaImage response, boolean[] mask) {
+        byte[] data = response.getData();
+        int n = response.getWidth() * response.getHeight();
+        long sum = 0;
+        long sumSquares = 0;
+        for (int i = 0; i < n; i++) {
+            int v = data[i] & 0xff;
+            sum += v;
+            sumSquares += v * v;
+        }
+        double mean = (double) sum / n;
+        double std = Math.sqrt(Math.max(0, (double) sumSquares / n - mean * mean));
+        double level = Math.max(MIN_THRESHOLD, mean + 2 * std);
+        for (int i = 0; i < n; i++) {
+            mask[i] = (data[i] & 0xff) > level;
+        }
+    }
+
+    private static void dilate(boolean[] mask, boolean[] out, boolean[] horizontal, int width, int height, int radius) {
+        morph(mask, out, horizontal, width, height, radius, true);
+    }
+
+    private static void erode(boolean[] mask, boolean[] out, boolean[] horizontal, int width, int height, int radius) {
+        morph(mask, out, horizontal, width, height, radius, false);
+    }
+
+    /**
+     * Square-window dilation (any pixel set) or erosion (all pixels set), done as two separable
+     * running-count passes, the first into {@code horizontal}. Windows are clipped at the image edges.
+     */
+    private static void morph(boolean[] mask, boolean[] out, boolean[] horizontal, int width, int height,
+                              int radius, boolean dilate) {
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            int count = 0;
+            for (int x = 0; x <= Math.min(radius, width - 1); x++) {
+                if (mask[row + x]) count++;
+            }
+            for (int x = 0; x < width; x++) {
+                int window = Math.min(width - 1, x + radius) - Math.max(0, x - radius) + 1;
+                horizontal[row + x] = dilate ? count > 0 : count == window;
+                int add = x + radius + 1;
+                int remove = x - radius;
+                if (add < width && mask[row + add]) count++;
+                if (remove >= 0 && mask[row + remove]) count--;
+            }
+        }
+        for (int x = 0; x < width; x++) {
+            int count = 0;
+            for (int y = 0; y <= Math.min(radius, height - 1); y++) {
+                if (horizontal[y * width + x]) count++;
+            }
+            for (int y = 0; y < height; y++) {
+                int window = Math.min(height - 1, y + radius) - Math.max(0, y - radius) + 1;
+                out[y * width + x] = dilate ? count > 0 : count == window;
+                int add = y + radius + 1;
+                int remove = y - radius;
+                if (add < height && horizontal[add * width + x]) count++;
+                if (remove >= 0 && horizontal[remove * width + x]) count--;
+            }
+        }
+    }
+
+    /**
+     * Labels 4-connected components and returns {minX, minY, maxX, maxY, pixelCount}
+     * for each component with at least minArea pixels.
+     */
+    private static List<int[]> components(boolean[] mask, boolean[] visited, int[] stack, int width, int height,
+                                          int minArea) {
+        List<int[]> result = new ArrayList<>();
+        int n = width * height;
+        Arrays.fill(visited, 0, n, false);
+        for (int start = 0; start < n; start++) {
+            if (!mask[start] || visited[start]) {
+                continue;
+            }
+            int minX = width, minY = height, maxX = -1, maxY = -1, count = 0;
+            int size = 0;
+            stack[size++] = start;
+            visited[start] = true;
+            while (size > 0) {
+                int p = stack[--size];
+                int x = p % width;
+                int y = p / width;
+                count++;
+                if (x < minX) minX = x;
+                if (x > maxX) maxX = x;
+                if (y < minY) minY = y;
+                if (y > maxY) maxY = y;
+                if (x > 0 && mask[p - 1] && !visited[p - 1]) { visited[p - 1] = true; stack[size++] = p - 1; }
+                if (x < width - 1 && mask[p + 1] && !visited[p + 1]) { visited[p + 1] = true; stack[size++] = p + 1; }
+                if (y > 0 && mask[p - width] && !visited[p - width]) { visited[p - width] = true; stack[size++] = p - width; }
+                if (y < height - 1 && mask[p + width] && !visited[p + width]) { visited[p + width] = true; stack[size++] = p + width; }
+            }
+            if (count >= minArea) {
+                result.add(new int[] {minX, minY, maxX, maxY, count});
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.demo.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * A small content-addressed cache: values are keyed by a digest of the content they were computed
+ * from, expire after a fixed time, and are evicted least recently used first once their estimated
+ * total size exceeds a budget.
+ */
+public final class ContentCache<V> {
+
+    // Rough per-entry cost of the map node, key and entry objects, in bytes.
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final ToIntFunction<V> sizeOf;
+    private final LinkedHashMap<Key, Entry<V>> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxBytes  budget for the estimated size of all entries
+     * @param ttlMillis how long an entry stays valid after it was stored
+     * @param sizeOf    estimated size of a value in bytes
+     */
+    public ContentCache(long maxBytes, long ttlMillis, ToIntFunction<V> sizeOf) {
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+        this.sizeOf = sizeOf;
+    }
+
+    /**
+     * Returns the value stored for the given digest, or null if there is none or it has expired.
+     */
+    public synchronized V get(byte[] digest, long now) {
+        Key key = new Key(digest);
+        Entry<V> entry = entries.get(key);
+        if (entry != null && now - entry.storedAt > ttlMillis) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    public synchronized void put(byte[] digest, V value, long now) {
+        Key key = new Key(digest);
+        int size = ENTRY_OVERHEAD + digest.length + sizeOf.applyAsInt(value);
+        if (size > maxBytes) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry<>(value, now, size));
+        bytes += size;
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().size;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Returns the entry count, estimated size, hits and misses since startup.
+     */
+    public synchronized Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("bytes", bytes);
+        stats.put("hits", hitCount);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        return stats;
+    }
+
+    private void remove(Key key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.size;
+        }
+    }
+
+    private static final class Key {
+        private final byte[] digest;
+        private final int hash;
+
+        Key(byte[] digest) {
+            this.digest = digest;
+            this.hash = Arrays.hashCode(digest);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(digest, ((Key) o).digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long storedAt;
+        final int size;
+
+        Entry(V value, long storedAt, int size) {
+            this.value = value;
+            this.storedAt = storedAt;
+            this.size = size;
+        }
+    }
+}
@@ -1,22 +1,55 @@
 package com.example.demo.util;
 
-import com.google.zxing.*;
-import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
 import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
-import java.util.EnumMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 public class CustomBarcodeProcessor {
 
+    // Adaptive threshold parameters. The block size grows with the image so that large,
+    // unevenly lit photos are compared against a neighbourhood wider than a single bar.
+    private static final int MIN_THRESHOLD_BLOCK_SIZE = 11;
+    private static final int THRESHOLD_BLOCK_DIVISOR = 64;
+    static final double THRESHOLD_C = 2;
+
+    // Sequential decoding tries the cleaned-up variants before the raw grayscale frame.
+    private static final ScanVariant[] SEQUENTIAL_ORDER = {
+            ScanVariant.BLURRED, ScanVariant.THRESHOLDED, ScanVariant.EDGES, ScanVariant.GRAY
+    };
+    // The parallel race starts with the raw frame, which needs no preprocessing,
+    // while the other variants are still being computed.
+    private static final ScanVariant[] PARALLEL_ORDER = {
+            ScanVariant.GRAY, ScanVariant.BLURRED, ScanVariant.THRESHOLDED, ScanVariant.EDGES
+    };
+    private static final int[] SEQUENTIAL_ARMS = VariantScheduler.armsFor(SEQUENTIAL_ORDER);
+    private static final int[] PARALLEL_ARMS = VariantScheduler.armsFor(PARALLEL_ORDER);
+    // The pyramid has levels at 1/4, 1/2 and full resolution; levels smaller than the
+    // minimum are too coarse to resolve typical bar widths and are skipped.
+    private static final int PYRAMID_LEVELS = 3;
+    private static final int PYRAMID_MIN_DIMENSION = 320;
+    // Frames smaller than this are decoded whole without region localization.
+    private static final long LOCALIZE_MIN_PIXELS = 640 * 480;
+    // Localized regions searched by the multiple-barcode pass.
+    private static final int MULTI_MAX_REGIONS = 12;
+    // Minimum padding, in pixels, around a tracked barcode region.
+    private static final int REGION_MIN_PADDING = 16;
+    // Variants the light plan tries, upright only, when the server is saturated.
+    private static final int LIGHT_VARIANTS = 2;
+
     /**
      * Detects and decodes a barcode from the input BufferedImage.
      * This method first converts the image to grayscale, then applies custom noise reduction (Gaussian blur),
      * adaptive thresholding, and edge detection (Sobel). It then attempts barcode decoding on each variant
-     * and on multiple rotations (0°, 90°, 180°, 270°).
+     * in all four orientations (see {@link #tryDecodeMultipleOrientations(LumaImage)}).
      *
      * Supports UPC, EAN, Code 128, and Interleaved 2 of 5 (ITF) formats.
      *
@@ -27,28 +60,415 @@ public class CustomBarcodeProcessor {
         if (inputImage == null) {
             return null;
         }
+        try (ScanContext context = ScanContext.open()) {
+            return detectBarcode(LumaImage.fromBufferedImage(inputImage, context));
+        }
+    }
+
+    /**
+     * Detects and decodes a barcode from a grayscale luminance plane in two tiers: a fast decode
+     * of the raw frame ({@link #tryDecodeFast(LumaImage)}), and only if that fails the
+     * TRY_HARDER decode of the preprocessed variants ({@link #detectBarcodeHard(LumaImage)}).
+     *
+     * @param gray the luminance plane
+     * @return the decoded barcode string, or null if none is found.
+     */
+    public static String detectBarcode(LumaImage gray) {
+        if (gray == null) {
+            return null;
+        }
+        String result = tryDecodeFast(gray);
+        return result != null ? result : detectBarcodeHard(gray);
+    }
 
-        // Convert to grayscale.
-        BufferedImage gray = toGrayscale(inputImage);
-        // Apply noise reduction using a simple Gaussian blur.
-        BufferedImage blurred = gaussianBlur(gray);
-        // Apply adaptive thresholding.
-        BufferedImage thresholded = adaptiveThreshold(blurred, 11, 2);
-        // Apply edge detection using a Sobel operator.
-        BufferedImage edges = sobelEdgeDetection(thresholded);
+    /**
+     * Second decode tier: TRY_HARDER decodes on the preprocessed variants.
+     * Candidate regions from {@link BarcodeLocalizer} are cropped and decoded first, largest first,
+     * so the preprocessing and decoding only pay for the area they cover; the full frame is the
+     * fallback. Each image runs the same blur, threshold and edge variants as
+     * {@link #detectBarcode(BufferedImage)} using the array-based kernels in {@link LumaKernels}.
+     * Crops and variants are planes of the calling thread's {@link ScanContext}, which its next
+     * scan reuses.
+     *
+     * @param gray the luminance plane
+     * @return the decoded barcode string, or null if none is found.
+     */
+    public static String detectBarcodeHard(LumaImage gray) {
+        return detectBarcodeHard(gray, null);
+    }
 
-        // Try decoding using different pre-processed variants.
-        String result = tryDecodeMultipleOrientations(blurred);
-        if (result != null) return result;
-        result = tryDecodeMultipleOrientations(thresholded);
-        if (result != null) return result;
-        result = tryDecodeMultipleOrientations(edges);
+    /**
+     * Same as {@link #detectBarcodeHard(LumaImage)}, but tries the variant × orientation attempts
+     * in the order chosen by the given scheduler and reports every attempt back to it.
+     *
+     * @param scheduler the adaptive scheduler, or null for the fixed default order
+     */
+    public static String detectBarcodeHard(LumaImage gray, VariantScheduler scheduler) {
+        return detectBarcodeHard(gray, scheduler, ScanDeadline.none(), false);
+    }
+
+    /**
+     * Same as {@link #detectBarcodeHard(LumaImage, VariantScheduler)}, but starts no further attempt
+     * once the deadline has passed. The light plan tries only the {@value #LIGHT_VARIANTS} variants
+     * that come first in the order, upright only, for when the server is too busy for the full search.
+     *
+     * @param deadline checked before localization and before every attempt
+     * @param light    whether to run the light plan
+     */
+    public static String detectBarcodeHard(LumaImage gray, VariantScheduler scheduler, ScanDeadline deadline,
+                                           boolean light) {
+        if (gray == null) {
+            return null;
+        }
+        try (ScanContext context = ScanContext.open()) {
+            for (Supplier<String> attempt : hardAttempts(gray, context, scheduler, SEQUENTIAL_ARMS, deadline, light)) {
+                String result = attempt.get();
+                if (result != null) return result;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Parallel form of {@link #detectBarcodeHard(LumaImage)}: detects and decodes a barcode by
+     * racing the variant × orientation attempts concurrently.
+     * Variants are computed lazily by whichever worker first needs them, the calling thread takes
+     * part in the race, and at most {@code parallelism} attempts run at once for this frame.
+     * The first successful decode wins and the remaining attempts are skipped.
+     * Localized regions are queued ahead of the full frame.
+     *
+     * @param gray        the luminance plane
+     * @param executor    shared pool used for the helper lanes
+     * @param parallelism maximum number of concurrent attempts for this frame
+     * @return the decoded barcode string, or null if none is found.
+     */
+    public static String detectBarcodeParallel(LumaImage gray, Executor executor, int parallelism) {
+        return detectBarcodeParallel(gray, executor, parallelism, null);
+    }
+
+    /**
+     * Same as {@link #detectBarcodeParallel(LumaImage, Executor, int)}, but queues the attempts in
+     * the order chosen by the given scheduler and reports every attempt back to it.
+     *
+     * @param scheduler the adaptive scheduler, or null for the fixed default order
+     */
+    public static String detectBarcodeParallel(LumaImage gray, Executor executor, int parallelism,
+                                               VariantScheduler scheduler) {
+        return detectBarcodeParallel(gray, executor, parallelism, scheduler, ScanDeadline.none());
+    }
+
+    /**
+     * Same as {@link #detectBarcodeParallel(LumaImage, Executor, int, VariantScheduler)}, but no lane
+     * starts another attempt once the deadline has passed.
+     */
+    public static String detectBarcodeParallel(LumaImage gray, Executor executor, int parallelism,
+                                               VariantScheduler scheduler, ScanDeadline deadline) {
+        if (gray == null) {
+            return null;
+        }
+        try (ScanContext context = ScanContext.open()) {
+            return DecodeRace.firstNonNull(hardAttempts(gray, context, scheduler, PARALLEL_ARMS, deadline, false),
+                    executor, parallelism);
+        }
+    }
+
+    /**
+     * Creates an adaptive scheduler for {@link #detectBarcodeHard(LumaImage, VariantScheduler)} or
+     * {@link #detectBarcodeParallel(LumaImage, Executor, int, VariantScheduler)}, starting from the
+     * default attempt order of that mode.
+     *
+     * @param exploration fraction of scans (0-1) that try the attempts in random order
+     */
+    public static VariantScheduler newVariantScheduler(double exploration, boolean parallel) {
+        return new VariantScheduler(exploration, parallel ? PARALLEL_ORDER : SEQUENTIAL_ORDER);
+    }
+
+    /**
+     * Detects and decodes a barcode coarse-to-fine. Fast decodes are tried on a 1/4 and 1/2
+     * resolution pyramid and then on the full grayscale frame; only when all of them fail does the
+     * scan fall back to {@link #detectBarcodeHard(LumaImage)} with its localization and heavy variants.
+     *
+     * @param gray the luminance plane
+     * @return the decoded barcode string, or null if none is found.
+     */
+    public static String detectBarcodePyramid(LumaImage gray) {
+        if (gray == null) {
+            return null;
+        }
+        String result = tryDecodePyramid(gray);
+        return result != null ? result : detectBarcodeHard(gray);
+    }
+
+    /**
+     * Runs only the fast pyramid stage of {@link #detectBarcodePyramid(LumaImage)}: a decode without
+     * TRY_HARDER, upright and at 90°, on each level from coarsest to full resolution. Levels whose
+     * longer side falls below {@value #PYRAMID_MIN_DIMENSION} pixels are skipped.
+     *
+     * @return the decoded barcode string, or null if no level decodes.
+     */
+    public static String tryDecodePyramid(LumaImage gray) {
+        try (ScanContext context = ScanContext.open()) {
+            List<LumaImage> levels = new ArrayList<>(PYRAMID_LEVELS);
+            levels.add(gray);
+            LumaImage level = gray;
+            for (int i = 1; i < PYRAMID_LEVELS; i++) {
+                if (Math.max(level.getWidth(), level.getHeight()) / 2 < PYRAMID_MIN_DIMENSION) {
+                    break;
+                }
+                level = LumaKernels.downsample(level, 2, context.plane(
+                        LumaKernels.downsampledSize(level.getWidth(), 2), LumaKernels.downsampledSize(level.getHeight(), 2)));
+                levels.add(0, level);
+            }
+            for (LumaImage candidate : levels) {
+                String result = tryDecodeFast(candidate);
+                if (result != null) return result;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * First decode tier: decodes the plane as-is with the fast reader (no TRY_HARDER),
+     * upright first and then on the zero-copy 90° view.
+     *
+     * @return the decoded barcode string, or null if none is found.
+     */
+    public static String tryDecodeFast(LumaImage image) {
+        return tryDecodeFast(image.toLuminanceSource());
+    }
+
+    /**
+     * First decode tier on an existing luminance view, upright first and then rotated by 90°.
+     *
+     * @return the decoded barcode string, or null if none is found.
+     */
+    public static String tryDecodeFast(LumaLuminanceSource source) {
+        Result result = tryDecodeFastResult(source);
+        return result == null ? null : result.getText();
+    }
+
+    /**
+     * Same as {@link #tryDecodeFast(LumaLuminanceSource)}, but returns the full result with its
+     * points mapped back to the coordinates of the given (upright) view.
+     *
+     * @return the decoded result, or null if none is found.
+     */
+    public static Result tryDecodeFastResult(LumaLuminanceSource source) {
+        Result result = BarcodeDecoder.decode(source, BarcodeDecoder.Tier.FAST);
         if (result != null) return result;
-        result = tryDecodeMultipleOrientations(gray);
+        result = BarcodeDecoder.decode(source.rotateCounterClockwise(), BarcodeDecoder.Tier.FAST);
+        if (result == null) return null;
+        // Point (x, y) of the counter-clockwise view is (width - 1 - y, x) in the upright view.
+        ResultPoint[] points = result.getResultPoints();
+        ResultPoint[] upright = new ResultPoint[points == null ? 0 : points.length];
+        for (int i = 0; i < upright.length; i++) {
+            upright[i] = new ResultPoint(source.getWidth() - 1 - points[i].getY(), points[i].getX());
+        }
+        return new Result(result.getText(), result.getRawBytes(), upright, result.getBarcodeFormat());
+    }
+
+    /**
+     * Returns the area around a decoded barcode, in frame coordinates, for decoding the next frame
+     * of the same stream: the bounding box of the result points, offset by the origin of the view
+     * they were found in and padded by half its longer side to allow for the bar height and motion.
+     *
+     * @return the padded region clipped to the frame, or null if the result has no points.
+     */
+    public static Rectangle regionAround(Result result, int offsetX, int offsetY, int frameWidth, int frameHeight) {
+        ResultPoint[] points = result.getResultPoints();
+        if (points == null || points.length == 0) {
+            return null;
+        }
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (ResultPoint point : points) {
+            if (point == null) continue;
+            minX = Math.min(minX, point.getX());
+            minY = Math.min(minY, point.getY());
+            maxX = Math.max(maxX, point.getX());
+            maxY = Math.max(maxY, point.getY());
+        }
+        if (maxX < minX) {
+            return null;
+        }
+        int pad = (int) (Math.max(maxX - minX, maxY - minY) / 2) + REGION_MIN_PADDING;
+        int left = Math.max(0, offsetX + (int) minX - pad);
+        int top = Math.max(0, offsetY + (int) minY - pad);
+        int right = Math.min(frameWidth, offsetX + (int) Math.ceil(maxX) + 1 + pad);
+        int bottom = Math.min(frameHeight, offsetY + (int) Math.ceil(maxY) + 1 + pad);
+        return right > left && bottom > top ? new Rectangle(left, top, right - left, bottom - top) : null;
+    }
+
+    /**
+     * Decodes every barcode in the frame, e.g. a shelf or basket photo, in a single pass without
+     * the preprocessing variants. Each region found by {@link BarcodeLocalizer} is searched with
+     * ZXing's multiple-barcode reader on a zero-copy view of the frame, then the whole frame is,
+     * which also picks up barcodes the localizer missed. A barcode found more than once at the
+     * same place is reported once; identical barcodes at different places are all reported.
+     *
+     * @return the results with their points in frame coordinates, in the order they were found.
+     */
+    public static List<Result> detectAllBarcodes(LumaImage gray) {
+        List<Result> found = new ArrayList<>();
+        LumaLuminanceSource frame = gray.toLuminanceSource();
+        if ((long) gray.getWidth() * gray.getHeight() >= LOCALIZE_MIN_PIXELS) {
+            for (Rectangle roi : BarcodeLocalizer.locate(gray, MULTI_MAX_REGIONS)) {
+                LumaLuminanceSource region = frame.crop(roi.x, roi.y, roi.width, roi.height);
+                for (Result result : BarcodeDecoder.decodeMultiple(region)) {
+                    addIfNew(found, translate(result, roi.x, roi.y));
+                }
+            }
+        }
+        for (Result result : BarcodeDecoder.decodeMultiple(frame)) {
+            addIfNew(found, result);
+        }
+        return found;
+    }
+
+    /**
+     * Returns the smallest rectangle containing the result points, or null if there are none.
+     * For 1D barcodes the points lie on the scan line, so the rectangle is only as tall (or wide)
+     * as the line.
+     */
+    public static Rectangle boundsOf(Result result) {
+        ResultPoint[] points = result.getResultPoints();
+        Rectangle bounds = null;
+        if (points == null) {
+            return null;
+        }
+        for (ResultPoint point : points) {
+            if (point == null) continue;
+            Rectangle pixel = new Rectangle((int) point.getX(), (int) point.getY(), 1, 1);
+            bounds = bounds == null ? pixel : bounds.union(pixel);
+        }
+        return bounds;
+    }
+
+    private static Result translate(Result result, int dx, int dy) {
+        ResultPoint[] points = result.getResultPoints();
+        ResultPoint[] moved = new ResultPoint[points == null ? 0 : points.length];
+        for (int i = 0; i < moved.length; i++) {
+            moved[i] = points[i] == null ? null : new ResultPoint(points[i].getX() + dx, points[i].getY() + dy);
+        }
+        Result translated = new Result(result.getText(), result.getRawBytes(), moved, result.getBarcodeFormat());
+        translated.putAllMetadata(result.getResultMetadata());
+        return translated;
+    }
+
+    /**
+     * Adds the result unless one with the same text and format was already found whose bounds
+     * are within the larger of the two barcodes' extents.
+     */
+    private static void addIfNew(List<Result> found, Result result) {
+        Rectangle bounds = boundsOf(result);
+        for (Result other : found) {
+            if (!other.getText().equals(result.getText()) || other.getBarcodeFormat() != result.getBarcodeFormat()) {
+                continue;
+            }
+            Rectangle otherBounds = boundsOf(other);
+            if (bounds == null || otherBounds == null) {
+                return;
+            }
+            double extent = Math.max(Math.max(bounds.width, bounds.height), Math.max(otherBounds.width, otherBounds.height));
+            if (Math.abs(bounds.getCenterX() - otherBounds.getCenterX()) <= extent
+                    && Math.abs(bounds.getCenterY() - otherBounds.getCenterY()) <= extent) {
+                return;
+            }
+        }
+        found.add(result);
+    }
+
+    /**
+     * Crops the regions found by {@link BarcodeLocalizer}, largest first, into planes of the current
+     * {@link ScanContext}. Small frames are cheap to decode whole and are not localized.
+     */
+    public static List<LumaImage> candidateRegions(LumaImage gray) {
+        return candidateRegions(gray, ScanContext.current());
+    }
+
+    /**
+     * Same as {@link #candidateRegions(LumaImage)}, but crops into planes of the given context.
+     */
+    public static List<LumaImage> candidateRegions(LumaImage gray, ScanContext context) {
+        List<LumaImage> regions = new ArrayList<>();
+        if ((long) gray.getWidth() * gray.getHeight() < LOCALIZE_MIN_PIXELS) {
+            return regions;
+        }
+        for (Rectangle roi : BarcodeLocalizer.locate(gray)) {
+            regions.add(gray.crop(roi.x, roi.y, roi.width, roi.height, context));
+        }
+        return regions;
+    }
+
+    /**
+     * Builds the TRY_HARDER attempts: every arm (variant in one orientation) for each localized
+     * region, then for the full frame. Crops and variants are planes of the given open context.
+     * Variants are built lazily, so a scan that succeeds early skips the later filters. The upright
+     * and 90° views are zero-copy views with ZXing's own rotation retry disabled, so each
+     * orientation is scanned exactly once. Once the deadline has passed, the remaining attempts
+     * return null without building their variant.
+     */
+    private static List<Supplier<String>> hardAttempts(LumaImage gray, ScanContext context, VariantScheduler scheduler,
+                                                       int[] defaultArms, ScanDeadline deadline, boolean light) {
+        int[] arms = scheduler != null ? scheduler.order() : defaultArms;
+        if (light) {
+            arms = lightArms(arms);
+        }
+        List<Supplier<String>> attempts = new ArrayList<>();
+        if (deadline.expired()) {
+            return attempts;
+        }
+        List<LumaImage> images = candidateRegions(gray, context);
+        images.add(gray);
+        PreprocessingBackend backend = PreprocessingBackends.active();
+        for (LumaImage image : images) {
+            ScanVariants variants = new ScanVariants(image, backend, context);
+            for (int arm : arms) {
+                attempts.add(() -> deadline.expired() ? null : tryArm(variants, arm, scheduler));
+            }
+        }
+        return attempts;
+    }
+
+    /**
+     * Keeps the upright arms of the first {@value #LIGHT_VARIANTS} variants, in the given order.
+     */
+    private static int[] lightArms(int[] arms) {
+        int[] light = new int[LIGHT_VARIANTS];
+        int count = 0;
+        for (int arm : arms) {
+            if (count < LIGHT_VARIANTS && !VariantScheduler.isRotated(arm)) {
+                light[count++] = arm;
+            }
+        }
+        return Arrays.copyOf(light, count);
+    }
+
+    private static String tryArm(ScanVariants variants, int arm, VariantScheduler scheduler) {
+        long start = System.nanoTime();
+        LumaLuminanceSource source = variants.get(VariantScheduler.variantOf(arm)).toLuminanceSource();
+        if (VariantScheduler.isRotated(arm)) {
+            source = source.rotateCounterClockwise();
+        }
+        String result = tryDecode(source.fixedOrientation());
+        if (scheduler != null) {
+            scheduler.record(arm, result != null, System.nanoTime() - start);
+        }
         return result;
     }
 
+    /**
+     * Chooses an odd adaptive threshold block size for the given image dimensions:
+     * 11 for typical images, growing with the short side for large photos.
+     */
+    public static int thresholdBlockSize(int width, int height) {
+        int scaled = Math.min(width, height) / THRESHOLD_BLOCK_DIVISOR;
+        int blockSize = Math.max(MIN_THRESHOLD_BLOCK_SIZE, scaled);
+        return (blockSize & 1) == 0 ? blockSize + 1 : blockSize;
+    }
+
     //IMAGE PROCESSING METHODS
+    // The BufferedImage versions below are kept for callers that work on AWT images;
+    // the scan pipeline itself uses the LumaImage kernels.
 
     /**
      * Converts the given image to grayscale using the weighted average method.
@@ -232,32 +652,28 @@ public class CustomBarcodeProcessor {
         return null;
     }
 
+    /**
+     * Tries to decode a barcode from the provided luminance plane in all orientations
+     * without materializing rotated copies. All supported formats are 1D symbologies, so:
+     * 180° is covered because the 1D readers also scan every row reversed, and 90°/270°
+     * are covered because a TRY_HARDER decode retries on the source's counter-clockwise view,
+     * which {@link LumaLuminanceSource} provides by index remapping over the same buffer.
+     */
+    public static String tryDecodeMultipleOrientations(LumaImage image) {
+        return tryDecode(image.toLuminanceSource());
+    }
+
     /**
      * Uses ZXing to decode a barcode from the given BufferedImage.
      */
     private static String tryDecode(BufferedImage image) {
-        LuminanceSource source = new BufferedImageLuminanceSource(image);
-        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-
-        // Set up decoding hints.
-        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
-        List<BarcodeFormat> formats = new ArrayList<>();
-        formats.add(BarcodeFormat.UPC_A);
-        formats.add(BarcodeFormat.EAN_8);
-        formats.add(BarcodeFormat.EAN_13);
-        formats.add(BarcodeFormat.CODE_128);
-        formats.add(BarcodeFormat.ITF);  // Interleaved 2 of 5
-        hints.put(DecodeHintType.POSSIBLE_FORMATS, formats);
-        hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
-
-        try {
-            Result result = new MultiFormatReader().decode(bitmap, hints);
-            return result.getText();
-        } catch (NotFoundException e) {
-            return null;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
+        return tryDecode(new BufferedImageLuminanceSource(image));
+    }
+
+    /**
+     * Uses ZXing to decode a barcode from the given luminance source with the TRY_HARDER tier.
+     */
+    private static String tryDecode(LuminanceSource source) {
+        return BarcodeDecoder.decodeText(source, BarcodeDecoder.Tier.HARD);
     }
 }
@@ -0,0 +1,251 @@
+package com.example.demo.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed pool for CPU-heavy decoding with a bounded queue, so that a burst of scans cannot tie up
+ * the request threads that cheap endpoints need. A task is rejected at once when the queue is
+ * full, and dropped when it has waited in the queue longer than the deadline; both surface as a
+ * {@link DecodeRejectedException}. A task that has started always runs to completion.
+ *
+ * The helper lanes of a {@link DecodeRace} run on the same workers, but only on idle ones (see
+ * {@link #helpers()}), so scans and race helpers together never use more threads than the pool
+ * has, and the queue only ever holds scans.
+ */
+public final class DecodeExecutor {
+
+    private final ThreadPoolExecutor pool;
+    private final int threads;
+    private final int queueCapacity;
+    private final long queueTimeoutNanos;
+    private final long retryAfterSeconds;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder helpersStarted = new LongAdder();
+    // Workers running a scan or reserved by a race helper.
+    private final AtomicInteger busy = new AtomicInteger();
+    private final Executor helpers = this::executeHelper;
+
+    /**
+     * @param threads            worker threads, typically one per core
+     * @param queueCapacity      tasks that may wait for a worker
+     * @param queueTimeoutMillis longest a task may wait in the queue before it is dropped (0 = no limit)
+     * @param retryAfterSeconds  delay suggested to rejected clients
+     */
+    public DecodeExecutor(int threads, int queueCapacity, long queueTimeoutMillis, long retryAfterSeconds,
+                          ThreadFactory threadFactory) {
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.threads = threads;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Queues a task.
+     *
+     * @throws DecodeRejectedException if the queue is full
+     */
+    public <T> Task<T> submit(Callable<T> callable) {
+        Task<T> task = new Task<>(callable);
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new DecodeRejectedException("Too many scans in progress, try again later.", false, retryAfterSeconds);
+        }
+        submitted.increment();
+        return task;
+    }
+
+    /**
+     * Waits for a task and returns its result. If it has not started by the queue deadline, it is
+     * taken out of the queue instead.
+     *
+     * @throws DecodeRejectedException if the task waited in the queue too long
+     * @throws IOException             if the task threw it
+     */
+    public <T> T await(Task<T> task) throws IOException {
+        return await(task, true);
+    }
+
+    /**
+     * Waits for a task without the queue deadline, e.g. for the later images of a batch whose
+     * first image has started.
+     */
+    public <T> T join(Task<T> task) throws IOException {
+        return await(task, false);
+    }
+
+    private <T> T await(Task<T> task, boolean deadline) throws IOException {
+        try {
+            if (!deadline || queueTimeoutNanos <= 0) {
+                return task.get();
+            }
+            try {
+                long remaining = task.enqueuedAt + queueTimeoutNanos - System.nanoTime();
+                return task.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (task.withdraw()) {
+                    expired.increment();
+                    throw new DecodeRejectedException("Scan waited too long for a decoder, try again later.",
+                            true, retryAfterSeconds);
+                }
+                // Started just in time; started tasks always complete.
+                return task.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            task.withdraw();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a decoder.");
+        }
+    }
+
+    /**
+     * Runs a task on the pool and waits for its result.
+     */
+    public <T> T call(Callable<T> callable) throws IOException {
+        return await(submit(callable));
+    }
+
+    /**
+     * Takes a task out of the queue if it has not started yet.
+     */
+    public void cancel(Task<?> task) {
+        task.withdraw();
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Number of tasks waiting for a worker.
+     */
+    public int queueDepth() {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * Number of workers running neither a scan nor a race helper.
+     */
+    public int idleThreads() {
+        return Math.max(0, threads - busy.get());
+    }
+
+    /**
+     * Returns an executor for the helper lanes of a {@link DecodeRace} started by a running task.
+     * A helper is handed to a worker only while one is idle and no scan is waiting; otherwise it is
+     * rejected with a {@link RejectedExecutionException}, and the race goes on with fewer lanes.
+     */
+    public Executor helpers() {
+        return helpers;
+    }
+
+    private void executeHelper(Runnable helper) {
+        if (pool.getQueue().isEmpty()) {
+            if (busy.incrementAndGet() <= threads) {
+                try {
+                    pool.execute(() -> {
+                        try {
+                            helper.run();
+                        } finally {
+                            busy.decrementAndGet();
+                        }
+                    });
+                    helpersStarted.increment();
+                    return;
+                } catch (RejectedExecutionException e) {
+                    busy.decrementAndGet();
+                    throw e;
+                }
+            }
+            busy.decrementAndGet();
+        }
+        throw new RejectedExecutionException("No idle decode thread.");
+    }
+
+    /**
+     * Returns the queue depth and capacity, busy and total workers, and counts of submitted,
+     * rejected (queue full) and expired (queue deadline) tasks, with the mean queue wait and the
+     * number of race helpers run.
+     */
+    public Map<String, Object> getStats() {
+        long startedCount = started.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", pool.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("activeThreads", pool.getActiveCount());
+        stats.put("threads", pool.getMaximumPoolSize());
+        stats.put("submitted", submitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("expired", expired.sum());
+        stats.put("avgQueueWaitMillis", startedCount == 0 ? 0.0 : queueWaitNanos.sum() / 1e6 / startedCount);
+        stats.put("raceHelpers", helpersStarted.sum());
+        return stats;
+    }
+
+    /**
+     * A queued task. Whoever claims it first decides its fate: a worker runs it, or a waiting
+     * caller whose deadline passed removes it from the queue.
+     */
+    public final class Task<T> extends FutureTask<T> {
+        private final long enqueuedAt = System.nanoTime();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private Task(Callable<T> callable) {
+            super(callable);
+        }
+
+        @Override
+        public void run() {
+            if (claimed.compareAndSet(false, true)) {
+                started.increment();
+                queueWaitNanos.add(System.nanoTime() - enqueuedAt);
+                busy.incrementAndGet();
+                try {
+                    super.run();
+                } finally {
+                    busy.decrementAndGet();
+                }
+            }
+        }
+
+        // Takes the task out of the queue unless a worker has claimed it already.
+        private boolean withdraw() {
+            if (!claimed.compareAndSet(false, true)) {
+                return false;
+            }
+            pool.remove(this);
+            cancel(false);
+            return true;
+        }
+    }
+}
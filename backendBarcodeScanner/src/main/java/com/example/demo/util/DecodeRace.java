@@ -0,0 +1,127 @@
+package com.example.demo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs a list of decode attempts on a bounded number of lanes and returns the first non-null result.
+ * The calling thread always works as one lane, and at most (parallelism - 1) helper lanes are
+ * handed to the shared executor, so a single request can never occupy more than its share of
+ * the pool. Once a result is found, the remaining lanes stop before starting their next attempt.
+ * Helper lanes hold the calling thread's {@link ScanContext} while they run, so the planes they
+ * read are not handed out again before they are done.
+ */
+final class DecodeRace<T> {
+
+    private final List<Supplier<T>> attempts;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger activeLanes = new AtomicInteger();
+    private final CompletableFuture<T> winner = new CompletableFuture<>();
+
+    private DecodeRace(List<Supplier<T>> attempts) {
+        this.attempts = attempts;
+    }
+
+    /**
+     * Runs the attempts, roughly in list order, and returns the first non-null result
+     * or null if every attempt fails.
+     */
+    static <T> T firstNonNull(List<Supplier<T>> attempts, Executor executor, int parallelism) {
+        if (attempts.isEmpty()) {
+            return null;
+        }
+        return new DecodeRace<>(attempts).run(executor, Math.max(1, Math.min(parallelism, attempts.size())));
+    }
+
+    private T run(Executor executor, int lanes) {
+        activeLanes.set(lanes);
+        ScanContext context = ScanContext.current();
+        List<Lane> helpers = new ArrayList<>(lanes - 1);
+        for (int i = 1; i < lanes; i++) {
+            Lane helper = new Lane(context.retain());
+            helpers.add(helper);
+            try {
+                executor.execute(helper);
+            } catch (RejectedExecutionException e) {
+                helper.retire();
+            }
+        }
+        new Lane(null).run();
+        // Helpers still waiting in the executor queue are retired here so the result
+        // does not depend on them ever being scheduled.
+        for (Lane helper : helpers) {
+            helper.retire();
+        }
+        try {
+            return winner.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void runAttempts() {
+        try {
+            int index;
+            while (!winner.isDone() && (index = next.getAndIncrement()) < attempts.size()) {
+                T result = attempts.get(index).get();
+                if (result != null) {
+                    winner.complete(result);
+                }
+            }
+        } catch (RuntimeException e) {
+            winner.completeExceptionally(e);
+        } finally {
+            laneFinished();
+        }
+    }
+
+    private void laneFinished() {
+        if (activeLanes.decrementAndGet() == 0) {
+            winner.complete(null);
+        }
+    }
+
+    private final class Lane implements Runnable {
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        // Held for the planes of the calling thread; null for the calling thread's own lane.
+        private final ScanContext context;
+
+        Lane(ScanContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public void run() {
+            if (claimed.compareAndSet(false, true)) {
+                try {
+                    runAttempts();
+                } finally {
+                    release();
+                }
+            }
+        }
+
+        void retire() {
+            if (claimed.compareAndSet(false, true)) {
+                laneFinished();
+                release();
+            }
+        }
+
+        private void release() {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.util;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when the {@link DecodeExecutor} has no room for a scan: its queue is full, or the scan
+ * waited in the queue past the deadline. Callers should answer with 429 Too Many Requests.
+ */
+public class DecodeRejectedException extends RejectedExecutionException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean queueTimeout;
+    private final long retryAfterSeconds;
+
+    public DecodeRejectedException(String message, boolean queueTimeout, long retryAfterSeconds) {
+        super(message);
+        this.queueTimeout = queueTimeout;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Whether the scan was queued but not started in time, as opposed to not queued at all.
+     */
+    public boolean isQueueTimeout() {
+        return queueTimeout;
+    }
+
+    /**
+     * Suggested delay before the client tries again, for the Retry-After header.
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.demo.util;
+
+/**
+ * A tiny perceptual signature of a luminance frame, used to recognize frames of a continuous
+ * scan stream that show practically the same scene as an earlier one.
+ *
+ * The frame is reduced to a {@value #GRID}×{@value #GRID} grid of cell averages, sampling every
+ * other pixel. Two signatures are compared by their mean absolute difference after removing each
+ * grid's overall brightness, so auto-exposure drift does not count as a scene change.
+ */
+public final class FrameSignature {
+
+    public static final int GRID = 16;
+    private static final int SAMPLE_STEP = 2;
+
+    private FrameSignature() {
+    }
+
+    /**
+     * Computes the signature of the first {@code height} rows of an 8-bit plane whose rows are
+     * {@code rowStride} bytes apart.
+     */
+    public static byte[] of(byte[] data, int rowStride, int width, int height) {
+        byte[] signature = new byte[GRID * GRID];
+        for (int cy = 0; cy < GRID; cy++) {
+            int y0 = cy * height / GRID;
+            int y1 = Math.max(y0 + 1, (cy + 1) * height / GRID);
+            for (int cx = 0; cx < GRID; cx++) {
+                int x0 = cx * width / GRID;
+                int x1 = Math.max(x0 + 1, (cx + 1) * width / GRID);
+                int sum = 0;
+                int count = 0;
+                for (int y = y0; y < y1 && y < height; y += SAMPLE_STEP) {
+                    int offset = y * rowStride;
+                    for (int x = x0; x < x1 && x < width; x += SAMPLE_STEP) {
+                        sum += data[offset + x] & 0xff;
+                        count++;
+                    }
+                }
+                signature[cy * GRID + cx] = (byte) (count == 0 ? 0 : sum / count);
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Returns the mean absolute difference (0-255) between two signatures, ignoring a uniform
+     * brightness shift between them.
+     */
+    public static int distance(byte[] a, byte[] b) {
+        int n = a.length;
+        int sumA = 0;
+        int sumB = 0;
+        for (int i = 0; i < n; i++) {
+            sumA += a[i] & 0xff;
+            sumB += b[i] & 0xff;
+        }
+        int shift = (sumA - sumB) / n;
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            total += Math.abs((a[i] & 0xff) - (b[i] & 0xff) - shift);
+        }
+        return total / n;
+    }
+}
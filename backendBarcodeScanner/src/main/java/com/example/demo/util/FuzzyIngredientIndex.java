@@ -0,0 +1,129 @@
+package com.example.demo.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers "which terms are within k edits of this string" for the terms of an
+ * {@link IngredientDictionary} without comparing against every term.
+ *
+ * Every term is cut into k + 1 segments. k edits can touch at most k of them, so a term within k
+ * edits of the query has a segment that appears unchanged in the query, shifted by at most k
+ * positions. The index maps (term length, segment number, segment text) to the terms; a search
+ * looks up the few substrings of the query that could be such a segment and checks only the terms
+ * found, with a banded {@link EditDistance#bounded} distance.
+ */
+public final class FuzzyIngredientIndex {
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final String[] terms;
+    private final int maxEdits;
+    private final Map<String, int[]> segments;
+    // Terms no longer than maxEdits: one of their segments is empty, so every query is a candidate.
+    private final int[] shortTerms;
+    private final int maxLength;
+
+    /**
+     * @param maxEdits the largest distance searches will ask for
+     */
+    public FuzzyIngredientIndex(String[] terms, int maxEdits) {
+        this.terms = terms;
+        this.maxEdits = maxEdits;
+        Map<String, List<Integer>> lists = new HashMap<>();
+        List<Integer> shortList = new ArrayList<>();
+        int longest = 0;
+        for (int id = 0; id < terms.length; id++) {
+            String term = terms[id];
+            longest = Math.max(longest, term.length());
+            if (term.length() <= maxEdits) {
+                shortList.add(id);
+                continue;
+            }
+            for (int i = 0; i <= maxEdits; i++) {
+                int start = segmentStart(term.length(), i);
+                String key = key(term.length(), i, term.substring(start, segmentStart(term.length(), i + 1)));
+                lists.computeIfAbsent(key, k -> new ArrayList<>()).add(id);
+            }
+        }
+        this.segments = new HashMap<>(lists.size() * 2);
+        lists.forEach((key, list) -> segments.put(key, list.stream().mapToInt(Integer::intValue).toArray()));
+        this.shortTerms = shortList.stream().mapToInt(Integer::intValue).toArray();
+        this.maxLength = longest;
+    }
+
+    /**
+     * Start of segment i of a term of the given length; segment maxEdits + 1 starts at the end.
+     * The first segments take the shorter share when the length does not divide evenly.
+     */
+    private int segmentStart(int length, int segment) {
+        int parts = maxEdits + 1;
+        int base = length / parts;
+        int longer = length % parts;
+        int shorter = parts - longer;
+        return segment <= shorter ? segment * base : shorter * base + (segment - shorter) * (base + 1);
+    }
+
+    private static String key(int length, int segment, String text) {
+        return length + ":" + segment + ":" + text;
+    }
+
+    /**
+     * Returns the ids of the terms at most {@code maxEdits} edits from the query, in ascending order.
+     *
+     * @throws IllegalArgumentException if {@code maxEdits} exceeds the distance the index was built for
+     */
+    public int[] search(String query, int maxEdits) {
+        if (maxEdits > this.maxEdits) {
+            throw new IllegalArgumentException("Index built for at most " + this.maxEdits + " edits");
+        }
+        int[] candidates = new int[16];
+        int count = 0;
+        for (int id : shortTerms) {
+            if (count == candidates.length) {
+                candidates = Arrays.copyOf(candidates, count * 2);
+            }
+            candidates[count++] = id;
+        }
+        int m = query.length();
+        for (int length = Math.max(this.maxEdits + 1, m - maxEdits); length <= Math.min(maxLength, m + maxEdits); length++) {
+            for (int i = 0; i <= this.maxEdits; i++) {
+                int start = segmentStart(length, i);
+                int size = segmentStart(length, i + 1) - start;
+                int from = Math.max(0, start - maxEdits);
+                int to = Math.min(m - size, start + maxEdits);
+                for (int position = from; position <= to; position++) {
+                    int[] ids = segments.get(key(length, i, query.substring(position, position + size)));
+                    if (ids == null) {
+                        continue;
+                    }
+                    if (count + ids.length > candidates.length) {
+                        candidates = Arrays.copyOf(candidates, Math.max(candidates.length * 2, count + ids.length));
+                    }
+                    System.arraycopy(ids, 0, candidates, count, ids.length);
+                    count += ids.length;
+                }
+            }
+        }
+        if (count == 0) {
+            return NO_IDS;
+        }
+        Arrays.sort(candidates, 0, count);
+        int found = 0;
+        int previous = -1;
+        for (int c = 0; c < count; c++) {
+            int id = candidates[c];
+            if (id == previous) {
+                continue;
+            }
+            previous = id;
+            if (EditDistance.within(query, terms[id], maxEdits)) {
+                candidates[found++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, found);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.util;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Decodes uploaded images, optionally straight to a reduced resolution.
+ * The image header is read first, and when the frame is larger than the requested size the
+ * decoder is told to subsample while decoding, so the full-resolution raster is never allocated.
+ */
+public final class ImageLoader {
+
+    private ImageLoader() {
+    }
+
+    /**
+     * Decodes the image so that its longer side is at most maxDimension, using integer source
+     * subsampling. A maxDimension of 0 or less decodes at full resolution.
+     *
+     * @return the decoded image, or null if the bytes are not a supported image format.
+     */
+    public static BufferedImage read(byte[] imageBytes, int maxDimension) throws IOException {
+        Decoded decoded = decode(imageBytes, maxDimension);
+        return decoded == null ? null : decoded.getImage();
+    }
+
+    /**
+     * Same as {@link #read(byte[], int)}, but also reports the subsampling factor that was applied.
+     *
+     * @return the decoded image, or null if the bytes are not a supported image format.
+     */
+    public static Decoded decode(byte[] imageBytes, int maxDimension) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(imageBytes))) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = subsamplingFor(reader.getWidth(0), reader.getHeight(0), maxDimension);
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return new Decoded(reader.read(0, param), subsampling);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Returns the smallest integer subsampling factor that brings the longer side
+     * down to maxDimension, or 1 when no subsampling is needed.
+     */
+    public static int subsamplingFor(int width, int height, int maxDimension) {
+        int longest = Math.max(width, height);
+        if (maxDimension <= 0 || longest <= maxDimension) {
+            return 1;
+        }
+        return (longest + maxDimension - 1) / maxDimension;
+    }
+
+    /**
+     * A decoded image together with the subsampling factor used to decode it.
+     */
+    public static final class Decoded {
+        private final BufferedImage image;
+        private final int subsampling;
+
+        private Decoded(BufferedImage image, int subsampling) {
+            this.image = image;
+            this.subsampling = subsampling;
+        }
+
+        public BufferedImage getImage() {
+            return image;
+        }
+
+        public int getSubsampling() {
+            return subsampling;
+        }
+
+        public boolean isSubsampled() {
+            return subsampling > 1;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.demo.util;
+
+/**
+ * Cheap checks for frames that are not worth the TRY_HARDER tier: motion-blurred or out of focus,
+ * or so badly exposed that the bars are clipped away. They run on a copy of the frame shrunk to
+ * about {@value #SAMPLE_DIMENSION} pixels on the longer side.
+ *
+ * Sharpness is the variance of the Laplacian, taken per tile and reported for the sharpest tile:
+ * a barcode that fills a small part of an otherwise smooth scene keeps the frame sharp, while a
+ * frame that is blurred as a whole has no sharp tile anywhere. Exposure is the fraction of pixels
+ * clipped to near black or near white.
+ */
+public final class ImageQuality {
+
+    private static final int SAMPLE_DIMENSION = 480;
+    private static final int TILE_SIZE = 48;
+    // Levels at or beyond which a pixel counts as clipped.
+    private static final int DARK_LEVEL = 8;
+    private static final int BRIGHT_LEVEL = 247;
+
+    /**
+     * Why a frame should be retaken rather than decoded.
+     */
+    public enum Issue {
+        BLURRY,
+        UNDEREXPOSED,
+        OVEREXPOSED;
+
+        /**
+         * Reason code reported to clients.
+         */
+        public String code() {
+            return name().toLowerCase();
+        }
+    }
+
+    private ImageQuality() {
+    }
+
+    /**
+     * Checks exposure first, then sharpness.
+     *
+     * @param minSharpness lowest acceptable Laplacian variance of the sharpest tile (0 = no check)
+     * @param maxClipped   highest acceptable fraction (0-1) of pixels clipped at either end (0 = no check)
+     * @return the issue, or null if the frame is worth decoding
+     */
+    public static Issue assess(LumaImage gray, double minSharpness, double maxClipped) {
+        if (minSharpness <= 0 && maxClipped <= 0) {
+            return null;
+        }
+        LumaImage sample = sample(gray);
+        byte[] data = sample.getData();
+        int size = sample.getWidth() * sample.getHeight();
+        int dark = 0;
+        int bright = 0;
+        for (int i = 0; i < size; i++) {
+            int v = data[i] & 0xff;
+            if (v <= DARK_LEVEL) {
+                dark++;
+            } else if (v >= BRIGHT_LEVEL) {
+                bright++;
+            }
+        }
+        if (maxClipped > 0 && dark > maxClipped * size) {
+            return Issue.UNDEREXPOSED;
+        }
+        if (maxClipped > 0 && bright > maxClipped * size) {
+            return Issue.OVEREXPOSED;
+        }
+        if (minSharpness > 0 && sharpness(sample) < minSharpness) {
+            return Issue.BLURRY;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the Laplacian variance of the sharpest tile of the plane, as is (not resampled).
+     */
+    static double sharpness(LumaImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (width < 3 || height < 3) {
+            return 0;
+        }
+        byte[] data = image.getData();
+        double best = 0;
+        for (int top = 1; top < height - 1; top += TILE_SIZE) {
+            int bottom = Math.min(height - 1, top + TILE_SIZE);
+            for (int left = 1; left < width - 1; left += TILE_SIZE) {
+                int right = Math.min(width - 1, left + TILE_SIZE);
+                long sum = 0;
+                long sumSquares = 0;
+                for (int y = top; y < bottom; y++) {
+                    int row = y * width;
+                    for (int x = left; x < right; x++) {
+                        int i = row + x;
+                        int laplacian = 4 * (data[i] & 0xff) - (data[i - 1] & 0xff) - (data[i + 1] & 0xff)
+                                - (data[i - width] & 0xff) - (data[i + width] & 0xff);
+                        sum += laplacian;
+                        sumSquares += laplacian * laplacian;
+                    }
+                }
+                int count = (bottom - top) * (right - left);
+                double mean = (double) sum / count;
+                best = Math.max(best, (double) sumSquares / count - mean * mean);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Shrinks the frame by the smallest integer factor that brings its longer side down to the sample size.
+     */
+    private static LumaImage sample(LumaImage gray) {
+        int longer = Math.max(gray.getWidth(), gray.getHeight());
+        int factor = (longer + SAMPLE_DIMENSION - 1) / SAMPLE_DIMENSION;
+        if (factor <= 1) {
+            return gray;
+        }
+        return LumaKernels.downsample(gray, factor, ScanContext.current().plane(
+                LumaKernels.downsampledSize(gray.getWidth(), factor), LumaKernels.downsampledSize(gray.getHeight(), factor)));
+    }
+}
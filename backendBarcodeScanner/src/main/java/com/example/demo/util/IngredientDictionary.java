@@ -0,0 +1,155 @@
+package com.example.demo.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Numbers every normalized ingredient of a catalog version, and every synonym, with a dense int id
+ * (in sorted order), so recipes and pantries can be held as id arrays and bitsets instead of strings.
+ *
+ * Ingredients listed together in the synonym table form a group under their canonical name. Groups
+ * are expected not to overlap; a term listed under two canonical names stays in the first group.
+ * Misspelled ingredients are resolved through a {@link FuzzyIngredientIndex} over the terms.
+ */
+public final class IngredientDictionary {
+
+    // Largest misspelling, in edits, that similar() resolves.
+    public static final int MAX_EDITS = 2;
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final String[] terms;
+    private final Map<String, Integer> ids;
+    // Group of each id, or -1.
+    private final int[] groupOf;
+    private final int[] groupCanonical;
+    private final int[][] groupMembers;
+    private final FuzzyIngredientIndex fuzzy;
+
+    /**
+     * @param normalizedTerms ingredients in normalized form
+     * @param synonyms        canonical name to its synonyms, all in normalized form
+     */
+    public IngredientDictionary(Collection<String> normalizedTerms, Map<String, Set<String>> synonyms) {
+        TreeSet<String> sorted = new TreeSet<>(normalizedTerms);
+        for (Map.Entry<String, Set<String>> entry : synonyms.entrySet()) {
+            sorted.add(entry.getKey());
+            sorted.addAll(entry.getValue());
+        }
+        this.terms = sorted.toArray(new String[0]);
+        this.ids = new HashMap<>(terms.length * 2);
+        for (int i = 0; i < terms.length; i++) {
+            ids.put(terms[i], i);
+        }
+
+        this.groupOf = new int[terms.length];
+        Arrays.fill(groupOf, -1);
+        List<String> canonicals = new ArrayList<>(new TreeSet<>(synonyms.keySet()));
+        this.groupCanonical = new int[canonicals.size()];
+        this.groupMembers = new int[canonicals.size()][];
+        for (int g = 0; g < canonicals.size(); g++) {
+            String canonical = canonicals.get(g);
+            groupCanonical[g] = ids.get(canonical);
+            List<Integer> members = new ArrayList<>();
+            members.add(groupCanonical[g]);
+            for (String synonym : synonyms.get(canonical)) {
+                members.add(ids.get(synonym));
+            }
+            int count = 0;
+            int[] memberIds = new int[members.size()];
+            for (int id : members) {
+                if (groupOf[id] < 0) {
+                    groupOf[id] = g;
+                    memberIds[count++] = id;
+                }
+            }
+            groupMembers[g] = Arrays.copyOf(memberIds, count);
+        }
+        this.fuzzy = new FuzzyIngredientIndex(terms, MAX_EDITS);
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    /**
+     * Returns the id of a normalized ingredient, or -1 if it is not in the dictionary.
+     */
+    public int id(String normalizedTerm) {
+        Integer id = ids.get(normalizedTerm);
+        return id == null ? -1 : id;
+    }
+
+    public String term(int id) {
+        return terms[id];
+    }
+
+    /**
+     * Returns the ids of the terms at most {@code maxEdits} edits from a normalized ingredient,
+     * including the ingredient itself if it is a term, in ascending order.
+     *
+     * @param maxEdits at most {@link #MAX_EDITS}
+     */
+    public int[] similar(String normalizedTerm, int maxEdits) {
+        return fuzzy.search(normalizedTerm, maxEdits);
+    }
+
+    /**
+     * Returns the synonym group of an id, or -1 if it has none.
+     */
+    public int group(int id) {
+        return groupOf[id];
+    }
+
+    public int groupCount() {
+        return groupCanonical.length;
+    }
+
+    /**
+     * Returns the id of the canonical name of a group.
+     */
+    public int groupCanonical(int group) {
+        return groupCanonical[group];
+    }
+
+    /**
+     * Returns the ids of a group: its canonical name first, then its synonyms.
+     */
+    public int[] groupMembers(int group) {
+        return group < 0 ? NO_IDS : groupMembers[group];
+    }
+
+    /**
+     * Returns an empty bitset sized for this dictionary.
+     */
+    public long[] newSet() {
+        return new long[(terms.length + 63) >>> 6];
+    }
+
+    public static void add(long[] set, int id) {
+        set[id >>> 6] |= 1L << id;
+    }
+
+    public static boolean contains(long[] set, int id) {
+        return (set[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Counts how many of the given ids are in the set.
+     */
+    public static int countIn(long[] set, int[] ids) {
+        int count = 0;
+        for (int id : ids) {
+            if ((set[id >>> 6] & (1L << id)) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
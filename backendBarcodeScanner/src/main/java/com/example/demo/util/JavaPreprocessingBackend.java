@@ -0,0 +1,39 @@
+package com.example.demo.util;
+
+/**
+ * The pure Java backend: the array kernels in {@link LumaKernels}, which use the Vector API
+ * when it is enabled.
+ */
+public final class JavaPreprocessingBackend implements PreprocessingBackend {
+
+    public static final String NAME = "java";
+    public static final JavaPreprocessingBackend INSTANCE = new JavaPreprocessingBackend();
+
+    private JavaPreprocessingBackend() {
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public LumaImage gaussianBlur(LumaImage src, LumaImage dst) {
+        return LumaKernels.gaussianBlur(src, dst);
+    }
+
+    @Override
+    public LumaImage adaptiveThreshold(LumaImage src, int blockSize, double C, LumaImage dst) {
+        return LumaKernels.adaptiveThresholdIntegral(src, blockSize, C, dst);
+    }
+
+    @Override
+    public LumaImage sobelEdgeDetection(LumaImage src, LumaImage dst) {
+        return LumaKernels.sobelEdgeDetection(src, dst);
+    }
+
+    @Override
+    public LumaImage rotate(LumaImage src, int angle) {
+        return LumaKernels.rotate(src, angle);
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.demo.util;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
+
+/**
+ * A single 8-bit luminance plane stored row-major in a byte array.
+ * This is the working format of the preprocessing pipeline: every stage reads and writes
+ * plain arrays, and a ZXing LuminanceSource is only built at the very end.
+ */
+public final class LumaImage {
+
+    private final byte[] data;
+    private final int width;
+    private final int height;
+
+    public LumaImage(int width, int height) {
+        this(new byte[width * height], width, height);
+    }
+
+    public LumaImage(byte[] data, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Image dimensions must be positive: " + width + "x" + height);
+        }
+        if (data.length < width * height) {
+            throw new IllegalArgumentException("Luma buffer too small for " + width + "x" + height);
+        }
+        this.data = data;
+        this.width = width;
+        this.height = height;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the unsigned luminance value at the given position.
+     */
+    public int get(int x, int y) {
+        return data[y * width + x] & 0xff;
+    }
+
+    /**
+     * Copies the given rectangle into a new, tightly packed plane.
+     */
+    public LumaImage crop(int left, int top, int cropWidth, int cropHeight) {
+        return crop(left, top, cropWidth, cropHeight, null);
+    }
+
+    /**
+     * Same as {@link #crop(int, int, int, int)}, copying into a plane of the given context
+     * (a new plane if it is null).
+     */
+    public LumaImage crop(int left, int top, int cropWidth, int cropHeight, ScanContext context) {
+        if (left < 0 || top < 0 || left + cropWidth > width || top + cropHeight > height) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within the image.");
+        }
+        LumaImage dst = newPlane(context, cropWidth, cropHeight);
+        for (int y = 0; y < cropHeight; y++) {
+            System.arraycopy(data, (top + y) * width + left, dst.data, y * cropWidth, cropWidth);
+        }
+        return dst;
+    }
+
+    /**
+     * Wraps the plane in a ZXing luminance source without copying it.
+     */
+    public LumaLuminanceSource toLuminanceSource() {
+        return new LumaLuminanceSource(this);
+    }
+
+    /**
+     * Wraps a raw 8-bit plane whose rows are {@code rowStride} bytes apart, such as the Y plane
+     * of a camera frame. A tightly packed plane is used as-is; a padded one is compacted.
+     */
+    public static LumaImage fromPlane(byte[] data, int width, int height, int rowStride) {
+        return fromPlane(data, width, height, rowStride, null);
+    }
+
+    /**
+     * Same as {@link #fromPlane(byte[], int, int, int)}, compacting a padded plane into a plane of
+     * the given context (a new plane if it is null).
+     */
+    public static LumaImage fromPlane(byte[] data, int width, int height, int rowStride, ScanContext context) {
+        if (rowStride == width) {
+            return new LumaImage(data, width, height);
+        }
+        if (rowStride < width || (long) rowStride * (height - 1) + width > data.length) {
+            throw new IllegalArgumentException("Plane of " + width + "x" + height + " with stride " + rowStride
+                    + " does not fit in " + data.length + " bytes.");
+        }
+        LumaImage dst = newPlane(context, width, height);
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(data, y * rowStride, dst.data, y * width, width);
+        }
+        return dst;
+    }
+
+    /**
+     * Converts the given image to a luminance plane using the weighted average method
+     * (fixed-point 0.299/0.587/0.114 weights).
+     * The common raster layouts (packed int RGB, interleaved byte BGR/ABGR and 8-bit gray)
+     * are read straight from their data buffers; anything else goes through a bulk getRGB per row.
+     */
+    public static LumaImage fromBufferedImage(BufferedImage src) {
+        return fromBufferedImage(src, null);
+    }
+
+    /**
+     * Same as {@link #fromBufferedImage(BufferedImage)}, converting into a plane of the given
+     * context (a new plane if it is null).
+     */
+    public static LumaImage fromBufferedImage(BufferedImage src, ScanContext context) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        LumaImage dst = newPlane(context, width, height);
+        byte[] out = dst.data;
+
+        Raster raster = src.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        boolean untranslated = raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && buffer.getNumBanks() == 1;
+
+        if (untranslated && buffer instanceof DataBufferInt
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+                && isPackedRgb(src)) {
+            int[] pixels = ((DataBufferInt) buffer).getData();
+            int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+            int base = buffer.getOffset();
+            for (int y = 0; y < height; y++) {
+                int in = base + y * stride;
+                int o = y * width;
+                LumaKernels.packedRgbToLuma(pixels, in, out, o, width);
+            }
+            return dst;
+        }
+
+        if (untranslated && buffer instanceof DataBufferByte
+                && raster.getSampleModel() instanceof ComponentSampleModel) {
+            ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+            byte[] bytes = ((DataBufferByte) buffer).getData();
+            int pixelStride = model.getPixelStride();
+            int stride = model.getScanlineStride();
+            int[] offsets = model.getBandOffsets();
+            int base = buffer.getOffset();
+            int colorSpace = src.getColorModel().getColorSpace().getType();
+
+            if (model.getNumBands() == 1 && colorSpace == ColorSpace.TYPE_GRAY) {
+                for (int y = 0; y < height; y++) {
+                    int in = base + y * stride + offsets[0];
+                    int o = y * width;
+                    for (int x = 0; x < width; x++) {
+                        out[o + x] = bytes[in + x * pixelStride];
+                    }
+                }
+                return dst;
+            }
+            if (model.getNumBands() >= 3 && src.getColorModel().getColorSpace().isCS_sRGB()
+                    && !src.getColorModel().isAlphaPremultiplied()) {
+                int rOff = offsets[0];
+                int gOff = offsets[1];
+                int bOff = offsets[2];
+                for (int y = 0; y < height; y++) {
+                    int in = base + y * stride;
+                    int o = y * width;
+                    for (int x = 0; x < width; x++, in += pixelStride) {
+                        int r = bytes[in + rOff] & 0xff;
+                        int g = bytes[in + gOff] & 0xff;
+                        int b = bytes[in + bOff] & 0xff;
+                        out[o + x] = (byte) LumaKernels.luma(r, g, b);
+                    }
+                }
+                return dst;
+            }
+        }
+
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            src.getRGB(0, y, width, 1, row, 0, width);
+            int o = y * width;
+            for (int x = 0; x < width; x++) {
+                out[o + x] = (byte) LumaKernels.luma(row[x]);
+            }
+        }
+        return dst;
+    }
+
+    /**
+     * Expands the plane back into a gray BufferedImage, mainly for debugging and interop.
+     */
+    public BufferedImage toBufferedImage() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        image.getRaster().setDataElements(0, 0, width, height, data.length == width * height
+                ? data
+                : Arrays.copyOf(data, width * height));
+        return image;
+    }
+
+    private static LumaImage newPlane(ScanContext context, int width, int height) {
+        return context != null ? context.plane(width, height) : new LumaImage(width, height);
+    }
+
+    private static boolean isPackedRgb(BufferedImage src) {
+        if (!(src.getColorModel() instanceof DirectColorModel)) {
+            return false;
+        }
+        DirectColorModel cm = (DirectColorModel) src.getColorModel();
+        return cm.getRedMask() == 0xff0000 && cm.getGreenMask() == 0xff00 && cm.getBlueMask() == 0xff
+                && !cm.isAlphaPremultiplied();
+    }
+}
@@ -0,0 +1,441 @@
+package com.example.demo.util;
+
+import java.util.Arrays;
+
+/**
+ * Array-based preprocessing kernels operating on {@link LumaImage} planes.
+ * Each kernel mirrors the BufferedImage method of the same name in {@link CustomBarcodeProcessor},
+ * but works on raw byte rows instead of per-pixel getRGB/setRGB calls.
+ * When the JVM runs with {@code --add-modules jdk.incubator.vector} on a CPU with 256-bit vectors,
+ * the blur, Sobel and color conversion kernels use the SIMD versions in {@link VectorLumaKernels},
+ * which give the same bytes. {@code -Dscanner.vector.disabled=true} keeps the scalar loops.
+ */
+public final class LumaKernels {
+
+    // Fixed-point luma weights (0.299, 0.587, 0.114) scaled by 2^16; they sum to exactly 2^16,
+    // so gray pixels keep their value.
+    static final int LUMA_R = 19595;
+    static final int LUMA_G = 38470;
+    static final int LUMA_B = 7471;
+
+    // System property that forces the scalar kernels even where the Vector API is usable.
+    static final String VECTOR_DISABLED_PROPERTY = "scanner.vector.disabled";
+
+    // Whether the SIMD kernels in VectorLumaKernels can be used. The incubator module is only
+    // present when the JVM runs with --add-modules jdk.incubator.vector.
+    static final boolean VECTOR_ENABLED = vectorAvailable();
+
+    private LumaKernels() {
+    }
+
+    /**
+     * Returns whether the blur, Sobel and color conversion kernels run on the Vector API.
+     */
+    public static boolean isVectorized() {
+        return VECTOR_ENABLED;
+    }
+
+    private static boolean vectorAvailable() {
+        if (Boolean.getBoolean(VECTOR_DISABLED_PROPERTY)) {
+            return false;
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorLumaKernels.isSupported();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Weighted luminance of an RGB pixel, using the fixed-point weights.
+     */
+    static int luma(int r, int g, int b) {
+        return (LUMA_R * r + LUMA_G * g + LUMA_B * b) >>> 16;
+    }
+
+    static int luma(int rgb) {
+        return luma((rgb >> 16) & 0xff, (rgb >> 8) & 0xff, rgb & 0xff);
+    }
+
+    /**
+     * Converts {@code count} packed 0xRRGGBB pixels starting at {@code in} into luminance bytes
+     * starting at {@code o}.
+     */
+    static void packedRgbToLuma(int[] pixels, int in, byte[] out, int o, int count) {
+        if (VECTOR_ENABLED) {
+            VectorLumaKernels.packedRgbToLuma(pixels, in, out, o, count);
+            return;
+        }
+        for (int x = 0; x < count; x++) {
+            out[o + x] = (byte) luma(pixels[in + x]);
+        }
+    }
+
+    /**
+     * Applies a simple Gaussian blur using a 3×3 kernel [1, 2, 1; 2, 4, 2; 1, 2, 1] / 16.
+     * Border pixels are copied unchanged.
+     */
+    public static LumaImage gaussianBlur(LumaImage src) {
+        return gaussianBlur(src, new LumaImage(src.getWidth(), src.getHeight()));
+    }
+
+    /**
+     * Same as {@link #gaussianBlur(LumaImage)}, writing into dst, a plane of the same size.
+     */
+    public static LumaImage gaussianBlur(LumaImage src, LumaImage dst) {
+        return VECTOR_ENABLED ? VectorLumaKernels.gaussianBlur(src, dst) : gaussianBlurScalar(src, dst);
+    }
+
+    static LumaImage gaussianBlurScalar(LumaImage src) {
+        return gaussianBlurScalar(src, new LumaImage(src.getWidth(), src.getHeight()));
+    }
+
+    static LumaImage gaussianBlurScalar(LumaImage src, LumaImage dst) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        byte[] in = src.getData();
+        byte[] out = dst.getData();
+        for (int y = 1; y < height - 1; y++) {
+            int up = (y - 1) * width;
+            int mid = y * width;
+            int down = (y + 1) * width;
+            for (int x = 1; x < width - 1; x++) {
+                int sum = (in[up + x - 1] & 0xff) + 2 * (in[up + x] & 0xff) + (in[up + x + 1] & 0xff)
+                        + 2 * (in[mid + x - 1] & 0xff) + 4 * (in[mid + x] & 0xff) + 2 * (in[mid + x + 1] & 0xff)
+                        + (in[down + x - 1] & 0xff) + 2 * (in[down + x] & 0xff) + (in[down + x + 1] & 0xff);
+                out[mid + x] = (byte) (sum >> 4);
+            }
+        }
+        copyBorder(in, out, width, height);
+        return dst;
+    }
+
+    /**
+     * Converts the plane to a binary (0/255) plane. For each pixel, the average over a local
+     * blockSize×blockSize window (clipped at the image edges) is computed and the pixel is set
+     * to black when it is darker than (average - C).
+     */
+    public static LumaImage adaptiveThreshold(LumaImage src, int blockSize, double C) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        LumaImage dst = new LumaImage(width, height);
+        byte[] in = src.getData();
+        byte[] out = dst.getData();
+        int half = blockSize / 2;
+        for (int y = 0; y < height; y++) {
+            int y0 = Math.max(0, y - half);
+            int y1 = Math.min(height - 1, y + half);
+            for (int x = 0; x < width; x++) {
+                int x0 = Math.max(0, x - half);
+                int x1 = Math.min(width - 1, x + half);
+                int sum = 0;
+                for (int yy = y0; yy <= y1; yy++) {
+                    int row = yy * width;
+                    for (int xx = x0; xx <= x1; xx++) {
+                        sum += in[row + xx] & 0xff;
+                    }
+                }
+                int count = (y1 - y0 + 1) * (x1 - x0 + 1);
+                int avg = sum / count;
+                int pixelVal = in[y * width + x] & 0xff;
+                out[y * width + x] = pixelVal < (avg - C) ? 0 : (byte) 255;
+            }
+        }
+        return dst;
+    }
+
+    /**
+     * Same result as {@link #adaptiveThreshold(LumaImage, int, double)}, but the window sums are
+     * read from a summed-area table, so the cost per pixel is constant regardless of blockSize.
+     * This makes large blocks affordable for big, unevenly lit photos.
+     */
+    public static LumaImage adaptiveThresholdIntegral(LumaImage src, int blockSize, double C) {
+        return adaptiveThresholdIntegral(src, blockSize, C, new LumaImage(src.getWidth(), src.getHeight()));
+    }
+
+    /**
+     * Same as {@link #adaptiveThresholdIntegral(LumaImage, int, double)}, writing into dst, a plane
+     * of the same size. The summed-area table is scratch of the calling thread's {@link ScanContext}.
+     */
+    public static LumaImage adaptiveThresholdIntegral(LumaImage src, int blockSize, double C, LumaImage dst) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        byte[] in = src.getData();
+        byte[] out = dst.getData();
+        int stride = width + 1;
+        // Sums of a 12 MP frame overflow an int, but every window sum fits easily, and the
+        // table is only ever used through differences, which are exact in wrap-around arithmetic.
+        int[] integral = ScanContext.current().scratchInts(ScanContext.INTS_INTEGRAL, stride * (height + 1));
+        Arrays.fill(integral, 0, stride, 0);
+        for (int y = 0; y < height; y++) {
+            int rowSum = 0;
+            int row = y * width;
+            int above = y * stride;
+            int current = above + stride;
+            integral[current] = 0;
+            for (int x = 0; x < width; x++) {
+                rowSum += in[row + x] & 0xff;
+                integral[current + x + 1] = integral[above + x + 1] + rowSum;
+            }
+        }
+        int half = blockSize / 2;
+        for (int y = 0; y < height; y++) {
+            int y0 = Math.max(0, y - half);
+            int y1 = Math.min(height - 1, y + half) + 1;
+            int top = y0 * stride;
+            int bottom = y1 * stride;
+            int rows = y1 - y0;
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int x0 = Math.max(0, x - half);
+                int x1 = Math.min(width - 1, x + half) + 1;
+                int sum = integral[bottom + x1] - integral[bottom + x0] - integral[top + x1] + integral[top + x0];
+                int avg = sum / (rows * (x1 - x0));
+                int pixelVal = in[row + x] & 0xff;
+                out[row + x] = pixelVal < (avg - C) ? 0 : (byte) 255;
+            }
+        }
+        return dst;
+    }
+
+    /**
+     * Applies edge detection using the Sobel operator, clamping the gradient magnitude to 255.
+     * Border pixels are copied unchanged.
+     */
+    public static LumaImage sobelEdgeDetection(LumaImage src) {
+        return sobelEdgeDetection(src, new LumaImage(src.getWidth(), src.getHeight()));
+    }
+
+    /**
+     * Same as {@link #sobelEdgeDetection(LumaImage)}, writing into dst, a plane of the same size.
+     */
+    public static LumaImage sobelEdgeDetection(LumaImage src, LumaImage dst) {
+        return VECTOR_ENABLED ? VectorLumaKernels.sobelEdgeDetection(src, dst) : sobelEdgeDetectionScalar(src, dst);
+    }
+
+    static LumaImage sobelEdgeDetectionScalar(LumaImage src) {
+        return sobelEdgeDetectionScalar(src, new LumaImage(src.getWidth(), src.getHeight()));
+    }
+
+    static LumaImage sobelEdgeDetectionScalar(LumaImage src, LumaImage dst) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        byte[] in = src.getData();
+        byte[] out = dst.getData();
+        for (int y = 1; y < height - 1; y++) {
+            int up = (y - 1) * width;
+            int mid = y * width;
+            int down = (y + 1) * width;
+            for (int x = 1; x < width - 1; x++) {
+                int tl = in[up + x - 1] & 0xff;
+                int tc = in[up + x] & 0xff;
+                int tr = in[up + x + 1] & 0xff;
+                int ml = in[mid + x - 1] & 0xff;
+                int mr = in[mid + x + 1] & 0xff;
+                int bl = in[down + x - 1] & 0xff;
+                int bc = in[down + x] & 0xff;
+                int br = in[down + x + 1] & 0xff;
+                int gx = (tr + 2 * mr + br) - (tl + 2 * ml + bl);
+                int gy = (bl + 2 * bc + br) - (tl + 2 * tc + tr);
+                int g = (int) Math.sqrt(gx * gx + gy * gy);
+                out[mid + x] = (byte) (g > 255 ? 255 : g);
+            }
+        }
+        copyBorder(in, out, width, height);
+        return dst;
+    }
+
+    /**
+     * Computes the Sobel gradients (as in {@link #sobelEdgeDetection(LumaImage)}) and returns
+     * | |gx| - |gy| | clamped to 255. Regions dominated by one gradient direction, such as the
+     * parallel bars of a 1D barcode in either orientation, light up; text and texture, whose
+     * gradients point every way, largely cancel out. Border pixels are set to 0.
+     */
+    public static LumaImage gradientDifference(LumaImage src) {
+        return gradientDifference(src, new LumaImage(src.getWidth(), src.getHeight()));
+    }
+
+    /**
+     * Same as {@link #gradientDifference(LumaImage)}, writing into dst, a plane of the same size.
+     */
+    public static LumaImage gradientDifference(LumaImage src, LumaImage dst) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        byte[] in = src.getData();
+        byte[] out = dst.getData();
+        Arrays.fill(out, 0, width, (byte) 0);
+        Arrays.fill(out, (height - 1) * width, height * width, (byte) 0);
+        for (int y = 1; y < height - 1; y++) {
+            int up = (y - 1) * width;
+            int mid = y * width;
+            int down = (y + 1) * width;
+            for (int x = 1; x < width - 1; x++) {
+                int tl = in[up + x - 1] & 0xff;
+                int tc = in[up + x] & 0xff;
+                int tr = in[up + x + 1] & 0xff;
+                int ml = in[mid + x - 1] & 0xff;
+                int mr = in[mid + x + 1] & 0xff;
+                int bl = in[down + x - 1] & 0xff;
+                int bc = in[down + x] & 0xff;
+                int br = in[down + x + 1] & 0xff;
+                int gx = Math.abs((tr + 2 * mr + br) - (tl + 2 * ml + bl));
+                int gy = Math.abs((bl + 2 * bc + br) - (tl + 2 * tc + tr));
+                int d = Math.abs(gx - gy);
+                out[mid + x] = (byte) (d > 255 ? 255 : d);
+            }
+            out[mid] = 0;
+            out[mid + width - 1] = 0;
+        }
+        return dst;
+    }
+
+    /**
+     * Averages the plane over (2·radius+1)² windows, clipped at the image edges.
+     */
+    public static LumaImage boxBlur(LumaImage src, int radius) {
+        return boxBlur(src, radius, new LumaImage(src.getWidth(), src.getHeight()));
+    }
+
+    /**
+     * Same as {@link #boxBlur(LumaImage, int)}, writing into dst, a plane of the same size.
+     * The running sums are scratch of the calling thread's {@link ScanContext}.
+     */
+    public static LumaImage boxBlur(LumaImage src, int radius, LumaImage dst) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        byte[] in = src.getData();
+        int[] rows = ScanContext.current().scratchInts(ScanContext.INTS_BOX_ROWS, width * height);
+        // Horizontal running sums, then a vertical pass over them.
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            int sum = 0;
+            for (int x = 0; x <= Math.min(radius, width - 1); x++) {
+                sum += in[row + x] & 0xff;
+            }
+            for (int x = 0; x < width; x++) {
+                rows[row + x] = sum;
+                int add = x + radius + 1;
+                int remove = x - radius;
+                if (add < width) sum += in[row + add] & 0xff;
+                if (remove >= 0) sum -= in[row + remove] & 0xff;
+            }
+        }
+        byte[] out = dst.getData();
+        for (int x = 0; x < width; x++) {
+            int countX = Math.min(width - 1, x + radius) - Math.max(0, x - radius) + 1;
+            int sum = 0;
+            for (int y = 0; y <= Math.min(radius, height - 1); y++) {
+                sum += rows[y * width + x];
+            }
+            for (int y = 0; y < height; y++) {
+                int countY = Math.min(height - 1, y + radius) - Math.max(0, y - radius) + 1;
+                out[y * width + x] = (byte) (sum / (countX * countY));
+                int add = y + radius + 1;
+                int remove = y - radius;
+                if (add < height) sum += rows[add * width + x];
+                if (remove >= 0) sum -= rows[remove * width + x];
+            }
+        }
+        return dst;
+    }
+
+    /**
+     * Shrinks the plane by an integer factor, averaging each factor×factor block.
+     * Trailing rows and columns that do not fill a whole block are dropped.
+     */
+    public static LumaImage downsample(LumaImage src, int factor) {
+        if (factor <= 1) {
+            return src;
+        }
+        return downsample(src, factor, new LumaImage(downsampledSize(src.getWidth(), factor),
+                downsampledSize(src.getHeight(), factor)));
+    }
+
+    /**
+     * Same as {@link #downsample(LumaImage, int)}, writing into dst, a plane of the reduced size
+     * (see {@link #downsampledSize(int, int)}).
+     */
+    public static LumaImage downsample(LumaImage src, int factor, LumaImage dst) {
+        if (factor <= 1) {
+            return src;
+        }
+        int width = src.getWidth();
+        int dstWidth = dst.getWidth();
+        int dstHeight = dst.getHeight();
+        int blockWidth = Math.min(factor, width);
+        int blockHeight = Math.min(factor, src.getHeight());
+        int area = blockWidth * blockHeight;
+        byte[] in = src.getData();
+        byte[] out = dst.getData();
+        for (int y = 0; y < dstHeight; y++) {
+            for (int x = 0; x < dstWidth; x++) {
+                int sum = 0;
+                int base = y * factor * width + x * factor;
+                for (int j = 0; j < blockHeight; j++) {
+                    int row = base + j * width;
+                    for (int i = 0; i < blockWidth; i++) {
+                        sum += in[row + i] & 0xff;
+                    }
+                }
+                out[y * dstWidth + x] = (byte) (sum / area);
+            }
+        }
+        return dst;
+    }
+
+    /**
+     * Width or height of a plane after {@link #downsample(LumaImage, int)} by the given factor.
+     */
+    public static int downsampledSize(int size, int factor) {
+        return factor <= 1 ? size : Math.max(1, size / factor);
+    }
+
+    /**
+     * Rotates the plane clockwise by the specified angle (degrees: 90, 180, or 270).
+     * Any other angle returns the source unchanged.
+     */
+    public static LumaImage rotate(LumaImage src, int angle) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        byte[] in = src.getData();
+        LumaImage dst;
+        if (angle == 90 || angle == 270) {
+            dst = new LumaImage(height, width);
+        } else if (angle == 180) {
+            dst = new LumaImage(width, height);
+        } else {
+            return src;
+        }
+        byte[] out = dst.getData();
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                byte pixel = in[row + x];
+                switch (angle) {
+                    case 90:
+                        out[x * height + (height - 1 - y)] = pixel;
+                        break;
+                    case 180:
+                        out[(height - 1 - y) * width + (width - 1 - x)] = pixel;
+                        break;
+                    default:
+                        out[(width - 1 - x) * height + y] = pixel;
+                        break;
+                }
+            }
+        }
+        return dst;
+    }
+
+    static void copyBorder(byte[] in, byte[] out, int width, int height) {
+        System.arraycopy(in, 0, out, 0, width);
+        System.arraycopy(in, (height - 1) * width, out, (height - 1) * width, width);
+        for (int y = 0; y < height; y++) {
+            out[y * width] = in[y * width];
+            out[y * width + width - 1] = in[y * width + width - 1];
+        }
+    }
+}
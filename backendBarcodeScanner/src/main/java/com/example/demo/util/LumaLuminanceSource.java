@@ -0,0 +1,150 @@
+package com.example.demo.util;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * A ZXing luminance source that views a {@link LumaImage} without copying it.
+ * Crops and 90° rotations are index remappings over the same buffer, so trying another
+ * orientation or region of a frame never materializes a new image. Only rows requested
+ * by the reader are gathered, into the caller's row array.
+ */
+public final class LumaLuminanceSource extends LuminanceSource {
+
+    private final byte[] data;
+    private final int dataWidth;
+    private final int left;
+    private final int top;
+    // Size of the viewed region in buffer coordinates (before rotation).
+    private final int regionWidth;
+    private final int regionHeight;
+    // Number of 90° counter-clockwise turns applied to the region (0-3).
+    private final int quarterTurns;
+    private final boolean rotatable;
+
+    public LumaLuminanceSource(LumaImage image) {
+        this(image.getData(), image.getWidth(), 0, 0, image.getWidth(), image.getHeight(), 0, true);
+    }
+
+    /**
+     * Views the first {@code height} rows of a raw 8-bit plane, such as the Y plane of an
+     * NV21 or YUV_420_888 camera frame, without copying it. Rows are {@code rowStride} bytes
+     * apart; any padding and any chroma data after the plane are ignored.
+     */
+    public static LumaLuminanceSource forPlane(byte[] data, int rowStride, int width, int height) {
+        if (width <= 0 || height <= 0 || rowStride < width || (long) rowStride * (height - 1) + width > data.length) {
+            throw new IllegalArgumentException("Plane of " + width + "x" + height + " with stride " + rowStride
+                    + " does not fit in " + data.length + " bytes.");
+        }
+        return new LumaLuminanceSource(data, rowStride, 0, 0, width, height, 0, true);
+    }
+
+    private LumaLuminanceSource(byte[] data, int dataWidth, int left, int top,
+                                int regionWidth, int regionHeight, int quarterTurns, boolean rotatable) {
+        super((quarterTurns & 1) == 0 ? regionWidth : regionHeight,
+              (quarterTurns & 1) == 0 ? regionHeight : regionWidth);
+        this.data = data;
+        this.dataWidth = dataWidth;
+        this.left = left;
+        this.top = top;
+        this.regionWidth = regionWidth;
+        this.regionHeight = regionHeight;
+        this.quarterTurns = quarterTurns;
+        this.rotatable = rotatable;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        switch (quarterTurns) {
+            case 0:
+                System.arraycopy(data, (top + y) * dataWidth + left, row, 0, width);
+                break;
+            case 1: {
+                // Row y of the view is column (regionWidth - 1 - y) of the region, read top to bottom.
+                int offset = top * dataWidth + left + regionWidth - 1 - y;
+                for (int x = 0; x < width; x++, offset += dataWidth) {
+                    row[x] = data[offset];
+                }
+                break;
+            }
+            case 2: {
+                int offset = (top + regionHeight - 1 - y) * dataWidth + left + regionWidth - 1;
+                for (int x = 0; x < width; x++) {
+                    row[x] = data[offset - x];
+                }
+                break;
+            }
+            default: {
+                // Row y of the view is column y of the region, read bottom to top.
+                int offset = (top + regionHeight - 1) * dataWidth + left + y;
+                for (int x = 0; x < width; x++, offset -= dataWidth) {
+                    row[x] = data[offset];
+                }
+                break;
+            }
+        }
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        int width = getWidth();
+        int height = getHeight();
+        if (quarterTurns == 0 && left == 0 && top == 0 && width == dataWidth && data.length == width * height) {
+            return data;
+        }
+        byte[] matrix = new byte[width * height];
+        byte[] row = quarterTurns == 0 ? null : new byte[width];
+        for (int y = 0; y < height; y++) {
+            if (quarterTurns == 0) {
+                System.arraycopy(data, (top + y) * dataWidth + left, matrix, y * width, width);
+            } else {
+                getRow(y, row);
+                System.arraycopy(row, 0, matrix, y * width, width);
+            }
+        }
+        return matrix;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return quarterTurns == 0;
+    }
+
+    @Override
+    public LumaLuminanceSource crop(int left, int top, int width, int height) {
+        if (quarterTurns != 0) {
+            throw new UnsupportedOperationException("Rotated views cannot be cropped.");
+        }
+        if (left < 0 || top < 0 || left + width > regionWidth || top + height > regionHeight) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+        return new LumaLuminanceSource(data, dataWidth, this.left + left, this.top + top,
+                width, height, 0, rotatable);
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return rotatable;
+    }
+
+    @Override
+    public LumaLuminanceSource rotateCounterClockwise() {
+        return new LumaLuminanceSource(data, dataWidth, left, top, regionWidth, regionHeight,
+                (quarterTurns + 1) & 3, rotatable);
+    }
+
+    /**
+     * Returns the same view with rotation disabled, so a TRY_HARDER decode only scans
+     * this orientation instead of also retrying the 90° view internally.
+     */
+    public LumaLuminanceSource fixedOrientation() {
+        return new LumaLuminanceSource(data, dataWidth, left, top, regionWidth, regionHeight, quarterTurns, false);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.util;
+
+import nu.pattern.OpenCV;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Preprocessing on OpenCV's native kernels, using the library bundled with {@code org.openpnp:opencv}.
+ * Each operation copies the plane into a {@code Mat}, runs the OpenCV function and copies the
+ * result back. The results match the Java backend except at the image borders, which OpenCV
+ * extrapolates instead of copying, and for rounding in the blur and Sobel magnitude.
+ */
+public final class OpenCvPreprocessingBackend implements PreprocessingBackend {
+
+    public static final String NAME = "opencv";
+
+    private OpenCvPreprocessingBackend() {
+    }
+
+    /**
+     * Loads the native library and checks that it works.
+     *
+     * @throws LinkageError if the library cannot be loaded for this platform
+     */
+    public static OpenCvPreprocessingBackend load() {
+        OpenCV.loadLocally();
+        // Touch the native side now, so a broken library fails here and not on the first scan.
+        new Mat(1, 1, CvType.CV_8UC1).release();
+        return new OpenCvPreprocessingBackend();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public LumaImage gaussianBlur(LumaImage src, LumaImage dst) {
+        Mat in = toMat(src);
+        Mat out = new Mat();
+        try {
+            Imgproc.GaussianBlur(in, out, new Size(3, 3), 0);
+            return toLuma(out, dst);
+        } finally {
+            in.release();
+            out.release();
+        }
+    }
+
+    @Override
+    public LumaImage adaptiveThreshold(LumaImage src, int blockSize, double C, LumaImage dst) {
+        Mat in = toMat(src);
+        Mat out = new Mat();
+        try {
+            Imgproc.adaptiveThreshold(in, out, 255, Imgproc.ADAPTIVE_THRESH_MEAN_C, Imgproc.THRESH_BINARY, blockSize, C);
+            return toLuma(out, dst);
+        } finally {
+            in.release();
+            out.release();
+        }
+    }
+
+    @Override
+    public LumaImage sobelEdgeDetection(LumaImage src, LumaImage dst) {
+        Mat in = toMat(src);
+        Mat gx = new Mat();
+        Mat gy = new Mat();
+        Mat out = new Mat();
+        try {
+            Imgproc.Sobel(in, gx, CvType.CV_32F, 1, 0);
+            Imgproc.Sobel(in, gy, CvType.CV_32F, 0, 1);
+            Core.magnitude(gx, gy, gx);
+            // Converting to 8 bits saturates at 255.
+            gx.convertTo(out, CvType.CV_8U);
+            return toLuma(out, dst);
+        } finally {
+            in.release();
+            gx.release();
+            gy.release();
+            out.release();
+        }
+    }
+
+    @Override
+    public LumaImage rotate(LumaImage src, int angle) {
+        int code;
+        switch (angle) {
+            case 90:
+                code = Core.ROTATE_90_CLOCKWISE;
+                break;
+            case 180:
+                code = Core.ROTATE_180;
+                break;
+            case 270:
+                code = Core.ROTATE_90_COUNTERCLOCKWISE;
+                break;
+            default:
+                return src;
+        }
+        Mat in = toMat(src);
+        Mat out = new Mat();
+        try {
+            Core.rotate(in, out, code);
+            return toLuma(out);
+        } finally {
+            in.release();
+            out.release();
+        }
+    }
+
+    private static Mat toMat(LumaImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] data = image.getData();
+        Mat mat = new Mat(height, width, CvType.CV_8UC1);
+        mat.put(0, 0, data, 0, width * height);
+        return mat;
+    }
+
+    private static LumaImage toLuma(Mat mat) {
+        return toLuma(mat, new LumaImage(mat.cols(), mat.rows()));
+    }
+
+    // Copies the Mat into dst, which has the Mat's size; get() stops at the end of the Mat.
+    private static LumaImage toLuma(Mat mat, LumaImage dst) {
+        mat.get(0, 0, dst.getData());
+        return dst;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.demo.util;
+
+import com.example.demo.model.Recipe;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A user's ingredients and banned ingredients resolved against one {@link IngredientDictionary},
+ * for scoring many recipes of that catalog version.
+ *
+ * A recipe ingredient is matched when a user ingredient equals it or is within {@value #MAX_EDITS}
+ * edits of it, or when it belongs to a synonym group the user hits: a user ingredient is the
+ * canonical name, one of the synonyms, or within {@value #MAX_EDITS} edits of the canonical name.
+ * Each user ingredient is looked up once in the dictionary's fuzzy index, and the matched ids are
+ * kept in a bitset. An ingredient is banned when it contains a banned ingredient; that is worked
+ * out on first use of an id and kept in bitsets too, so every recipe pays only bit tests.
+ *
+ * Not thread-safe; one pantry serves one request.
+ */
+public final class Pantry {
+
+    public static final int MAX_EDITS = IngredientDictionary.MAX_EDITS;
+
+    private final IngredientDictionary dictionary;
+    private final String[] userIngredients;
+    private final String[] bannedIngredients;
+    // User ingredients that are dictionary terms, and how many are not.
+    private final long[] exact;
+    private final int exactCount;
+    private final int unknownCount;
+    private final long[] matched;
+    private final long[] bannedDecided;
+    private final long[] banned;
+
+    public Pantry(IngredientDictionary dictionary, Collection<String> userIngredients, Collection<String> bannedIngredients) {
+        this.dictionary = dictionary;
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String ingredient : userIngredients) {
+            normalized.add(Recipe.normalize(ingredient));
+        }
+        this.userIngredients = normalized.toArray(new String[0]);
+        Set<String> normalizedBanned = new LinkedHashSet<>();
+        for (String ingredient : bannedIngredients) {
+            normalizedBanned.add(Recipe.normalize(ingredient));
+        }
+        this.bannedIngredients = normalizedBanned.toArray(new String[0]);
+
+        this.exact = dictionary.newSet();
+        int known = 0;
+        for (String ingredient : this.userIngredients) {
+            int id = dictionary.id(ingredient);
+            if (id >= 0) {
+                IngredientDictionary.add(exact, id);
+                known++;
+            }
+        }
+        this.exactCount = known;
+        this.unknownCount = this.userIngredients.length - known;
+
+        this.matched = dictionary.newSet();
+        boolean[] groupHit = new boolean[dictionary.groupCount()];
+        for (String ingredient : this.userIngredients) {
+            for (int id : dictionary.similar(ingredient, MAX_EDITS)) {
+                IngredientDictionary.add(matched, id);
+                int group = dictionary.group(id);
+                if (group >= 0 && (dictionary.groupCanonical(group) == id || ingredient.equals(dictionary.term(id)))) {
+                    groupHit[group] = true;
+                }
+            }
+        }
+        for (int g = 0; g < groupHit.length; g++) {
+            if (groupHit[g]) {
+                for (int id : dictionary.groupMembers(g)) {
+                    IngredientDictionary.add(matched, id);
+                }
+            }
+        }
+
+        this.bannedDecided = dictionary.newSet();
+        this.banned = dictionary.newSet();
+    }
+
+    /**
+     * Whether the user has the ingredient with this id.
+     */
+    public boolean matches(int id) {
+        return IngredientDictionary.contains(matched, id);
+    }
+
+    /**
+     * Returns the ids of every ingredient the user has, in ascending order.
+     */
+    public int[] matchedIds() {
+        int count = 0;
+        for (long word : matched) {
+            count += Long.bitCount(word);
+        }
+        int[] ids = new int[count];
+        int next = 0;
+        for (int w = 0; w < matched.length; w++) {
+            for (long word = matched[w]; word != 0; word &= word - 1) {
+                ids[next++] = (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Whether any of the ids is banned.
+     */
+    public boolean anyBanned(int[] ids) {
+        if (bannedIngredients.length == 0) {
+            return false;
+        }
+        for (int id : ids) {
+            if (!IngredientDictionary.contains(bannedDecided, id)) {
+                IngredientDictionary.add(bannedDecided, id);
+                String term = dictionary.term(id);
+                for (String ingredient : bannedIngredients) {
+                    if (term.contains(ingredient)) {
+                        IngredientDictionary.add(banned, id);
+                        break;
+                    }
+                }
+            }
+            if (IngredientDictionary.contains(banned, id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether every distinct recipe ingredient is literally one of the user's ingredients.
+     *
+     * @param distinctIds the recipe's distinct ingredient ids
+     */
+    public boolean covers(int[] distinctIds) {
+        return IngredientDictionary.countIn(exact, distinctIds) == distinctIds.length;
+    }
+
+    /**
+     * Whether every user ingredient is literally one of the recipe's ingredients.
+     *
+     * @param distinctIds the recipe's distinct ingredient ids
+     */
+    public boolean coveredBy(int[] distinctIds) {
+        return unknownCount == 0 && IngredientDictionary.countIn(exact, distinctIds) == exactCount;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.util;
+
+/**
+ * The image operations behind the preprocessing variants. Implementations take and return 8-bit
+ * luminance planes and never modify their input. The operations that keep the size of the plane
+ * write into a given destination, so callers can reuse buffers (see {@link ScanContext}); the
+ * one-argument forms allocate it.
+ */
+public interface PreprocessingBackend {
+
+    /**
+     * Name used to select the backend in configuration.
+     */
+    String getName();
+
+    /**
+     * 3×3 Gaussian blur ([1, 2, 1] in each direction).
+     */
+    default LumaImage gaussianBlur(LumaImage src) {
+        return gaussianBlur(src, new LumaImage(src.getWidth(), src.getHeight()));
+    }
+
+    LumaImage gaussianBlur(LumaImage src, LumaImage dst);
+
+    /**
+     * Mean adaptive threshold: pixels darker than the mean of their block minus {@code C} become 0,
+     * all others 255.
+     */
+    default LumaImage adaptiveThreshold(LumaImage src, int blockSize, double C) {
+        return adaptiveThreshold(src, blockSize, C, new LumaImage(src.getWidth(), src.getHeight()));
+    }
+
+    LumaImage adaptiveThreshold(LumaImage src, int blockSize, double C, LumaImage dst);
+
+    /**
+     * Sobel gradient magnitude, clamped to 255.
+     */
+    default LumaImage sobelEdgeDetection(LumaImage src) {
+        return sobelEdgeDetection(src, new LumaImage(src.getWidth(), src.getHeight()));
+    }
+
+    LumaImage sobelEdgeDetection(LumaImage src, LumaImage dst);
+
+    /**
+     * Rotates the plane clockwise by 90, 180 or 270 degrees; other angles return the source.
+     */
+    LumaImage rotate(LumaImage src, int angle);
+}
@@ -0,0 +1,44 @@
+package com.example.demo.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chooses the {@link PreprocessingBackend} used for the preprocessing variants.
+ * The backend is selected once at startup; until then, and whenever the selected backend
+ * cannot be loaded, the Java backend is used.
+ */
+public final class PreprocessingBackends {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PreprocessingBackends.class);
+
+    private static volatile PreprocessingBackend active = JavaPreprocessingBackend.INSTANCE;
+
+    private PreprocessingBackends() {
+    }
+
+    public static PreprocessingBackend active() {
+        return active;
+    }
+
+    /**
+     * Makes the named backend ("java" or "opencv") the active one, falling back to the Java
+     * backend if it is unknown or its native library fails to load.
+     *
+     * @return the backend now in use
+     */
+    public static PreprocessingBackend select(String name) {
+        PreprocessingBackend backend = JavaPreprocessingBackend.INSTANCE;
+        if (OpenCvPreprocessingBackend.NAME.equalsIgnoreCase(name)) {
+            try {
+                backend = OpenCvPreprocessingBackend.load();
+            } catch (Throwable e) {
+                LOG.warn("OpenCV preprocessing unavailable, using the Java backend", e);
+            }
+        } else if (name != null && !JavaPreprocessingBackend.NAME.equalsIgnoreCase(name)) {
+            LOG.warn("Unknown preprocessing backend '{}', using the Java backend", name);
+        }
+        active = backend;
+        return backend;
+    }
+}
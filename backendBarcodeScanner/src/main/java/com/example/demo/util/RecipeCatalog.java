@@ -0,0 +1,175 @@
+package com.example.demo.util;
+
+import com.example.demo.model.Recipe;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The recipe collection held in memory and kept current by a Firestore snapshot listener.
+ *
+ * The first snapshot of the listener loads the whole collection into a {@link RecipeIndex}; every
+ * later snapshot carries only the changed documents, which are applied to build the next version.
+ * Readers take {@link #current()} once per request and see one consistent version throughout,
+ * while a new version is swapped in with a single volatile write.
+ *
+ * If the listener fails, the last version keeps being served and the listener is registered again
+ * after a delay; its first snapshot then reloads the collection in full.
+ */
+public final class RecipeCatalog implements AutoCloseable {
+
+    private final Query source;
+    private final Map<String, Set<String>> synonyms;
+    private final long retryDelayMillis;
+    private final Runnable onUpdate;
+    private final ScheduledExecutorService retries;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+
+    private volatile RecipeIndex index;
+    private volatile long updatedAt;
+    private volatile boolean listening;
+    private final LongAdder snapshots = new LongAdder();
+    private final LongAdder changes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    // Guarded by this.
+    private ListenerRegistration registration;
+    private boolean fullSnapshotPending;
+    private long version;
+    private boolean closed;
+
+    /**
+     * @param source           the recipes collection (or a query over it)
+     * @param synonyms         canonical ingredient name to its synonyms, for the ingredient dictionary
+     * @param retryDelayMillis delay before listening again after the listener fails
+     * @param onUpdate         called after every new version, e.g. to drop results derived from the old one
+     */
+    public RecipeCatalog(Query source, Map<String, Set<String>> synonyms, long retryDelayMillis, Runnable onUpdate) {
+        this.source = source;
+        this.synonyms = synonyms;
+        this.retryDelayMillis = retryDelayMillis;
+        this.onUpdate = onUpdate;
+        this.retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recipe-catalog-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts listening. The catalog is loaded once the first snapshot arrives.
+     */
+    public synchronized void start() {
+        if (closed || registration != null) {
+            return;
+        }
+        fullSnapshotPending = true;
+        registration = source.addSnapshotListener(this::onSnapshot);
+        listening = true;
+    }
+
+    /**
+     * Waits for the first load.
+     *
+     * @return whether the catalog is loaded
+     */
+    public boolean awaitLoaded(long timeoutMillis) throws InterruptedException {
+        return loaded.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the current version, or null until the first snapshot has been loaded.
+     */
+    public RecipeIndex current() {
+        return index;
+    }
+
+    private synchronized void onSnapshot(QuerySnapshot snapshot, FirestoreException error) {
+        if (closed) {
+            return;
+        }
+        if (error != null) {
+            errors.increment();
+            error.printStackTrace();
+            registration = null;
+            listening = false;
+            retries.schedule(this::start, retryDelayMillis, TimeUnit.MILLISECONDS);
+            return;
+        }
+        snapshots.increment();
+        RecipeIndex current = index;
+        RecipeIndex next;
+        if (current == null || fullSnapshotPending) {
+            List<Recipe> recipes = new ArrayList<>(snapshot.size());
+            for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+                recipes.add(Recipe.fromDocument(doc));
+            }
+            next = new RecipeIndex(++version, recipes, synonyms);
+            fullSnapshotPending = false;
+        } else {
+            List<Recipe> upserts = new ArrayList<>();
+            Set<String> removals = new HashSet<>();
+            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    removals.add(change.getDocument().getId());
+                } else {
+                    upserts.add(Recipe.fromDocument(change.getDocument()));
+                }
+            }
+            if (upserts.isEmpty() && removals.isEmpty()) {
+                return;
+            }
+            changes.add(upserts.size() + removals.size());
+            next = current.withChanges(++version, upserts, removals);
+        }
+        index = next;
+        updatedAt = System.currentTimeMillis();
+        loaded.countDown();
+        onUpdate.run();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        listening = false;
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        retries.shutdownNow();
+    }
+
+    /**
+     * Returns the current version and its size, whether the listener is active, when the catalog
+     * last changed, and counts of snapshots, applied document changes and listener failures.
+     */
+    public Map<String, Object> getStats() {
+        RecipeIndex current = index;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", current != null);
+        stats.put("version", current == null ? 0 : current.getVersion());
+        stats.put("recipes", current == null ? 0 : current.size());
+        stats.put("ingredients", current == null ? 0 : current.ingredientCount());
+        stats.put("listening", listening);
+        stats.put("updatedAt", updatedAt);
+        stats.put("snapshots", snapshots.sum());
+        stats.put("documentChanges", changes.sum());
+        stats.put("listenerErrors", errors.sum());
+        return stats;
+    }
+}
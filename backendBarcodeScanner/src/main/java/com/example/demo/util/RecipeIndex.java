@@ -0,0 +1,221 @@
+package com.example.demo.util;
+
+import com.example.demo.model.Recipe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One immutable version of the recipe catalog. Recipes are numbered by document id, their
+ * ingredients by an {@link IngredientDictionary}, and an inverted index maps every ingredient id to
+ * the sorted numbers of the recipes that use it, so the recipes sharing an ingredient with a query
+ * are found without scanning the catalog.
+ *
+ * Updates never change an index; {@link #withChanges} builds the next version, which readers pick
+ * up by swapping a single reference.
+ */
+public final class RecipeIndex {
+
+    private static final int[] NO_RECIPES = new int[0];
+
+    private final long version;
+    // Sorted by id, the order Firestore returns documents in.
+    private final Recipe[] recipes;
+    private final Map<String, Integer> ordinals;
+    private final Map<String, Set<String>> synonyms;
+    private final IngredientDictionary dictionary;
+    // Per recipe: the id of each ingredient in list order, and the distinct ids in ascending order.
+    private final int[][] ingredientIds;
+    private final int[][] distinctIngredientIds;
+    private final int[][] postings;
+
+    /**
+     * @param synonyms canonical ingredient name to its synonyms, all in normalized form
+     */
+    public RecipeIndex(long version, Collection<Recipe> recipes, Map<String, Set<String>> synonyms) {
+        this.version = version;
+        this.recipes = recipes.toArray(new Recipe[0]);
+        Arrays.sort(this.recipes, Comparator.comparing(Recipe::getId));
+        this.synonyms = synonyms;
+        this.ordinals = new HashMap<>(this.recipes.length * 2);
+        Set<String> terms = new HashSet<>();
+        for (int i = 0; i < this.recipes.length; i++) {
+            ordinals.put(this.recipes[i].getId(), i);
+            terms.addAll(this.recipes[i].getNormalizedIngredientSet());
+        }
+        this.dictionary = new IngredientDictionary(terms, synonyms);
+
+        this.ingredientIds = new int[this.recipes.length][];
+        this.distinctIngredientIds = new int[this.recipes.length][];
+        int[] counts = new int[dictionary.size()];
+        for (int i = 0; i < this.recipes.length; i++) {
+            List<String> normalized = this.recipes[i].getNormalizedIngredients();
+            int[] ids = new int[normalized.size()];
+            for (int j = 0; j < ids.length; j++) {
+                ids[j] = dictionary.id(normalized.get(j));
+            }
+            ingredientIds[i] = ids;
+            int[] distinct = Arrays.stream(ids).distinct().sorted().toArray();
+            distinctIngredientIds[i] = distinct;
+            for (int id : distinct) {
+                counts[id]++;
+            }
+        }
+        this.postings = new int[dictionary.size()][];
+        for (int id = 0; id < postings.length; id++) {
+            postings[id] = counts[id] == 0 ? NO_RECIPES : new int[counts[id]];
+            counts[id] = 0;
+        }
+        for (int i = 0; i < this.recipes.length; i++) {
+            for (int id : distinctIngredientIds[i]) {
+                postings[id][counts[id]++] = i;
+            }
+        }
+    }
+
+    /**
+     * An index with no recipes.
+     */
+    public static RecipeIndex empty() {
+        return new RecipeIndex(0, Collections.emptyList(), Collections.emptyMap());
+    }
+
+    /**
+     * Builds the next version: this index with the given recipes added or replaced (by id) and the
+     * given ids removed.
+     */
+    public RecipeIndex withChanges(long version, Collection<Recipe> upserts, Set<String> removals) {
+        Map<String, Recipe> byId = new HashMap<>(recipes.length * 2);
+        for (Recipe recipe : recipes) {
+            byId.put(recipe.getId(), recipe);
+        }
+        byId.keySet().removeAll(removals);
+        for (Recipe recipe : upserts) {
+            byId.put(recipe.getId(), recipe);
+        }
+        return new RecipeIndex(version, byId.values(), synonyms);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return recipes.length;
+    }
+
+    /**
+     * Number of distinct normalized ingredients used by the recipes.
+     */
+    public int ingredientCount() {
+        int count = 0;
+        for (int[] list : postings) {
+            if (list.length > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public IngredientDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the recipe with the given number.
+     */
+    public Recipe recipe(int ordinal) {
+        return recipes[ordinal];
+    }
+
+    /**
+     * Returns the ingredient ids of a recipe in the order of {@link Recipe#getIngredients()}.
+     */
+    public int[] ingredientIds(int ordinal) {
+        return ingredientIds[ordinal];
+    }
+
+    /**
+     * Returns the distinct ingredient ids of a recipe in ascending order.
+     */
+    public int[] distinctIngredientIds(int ordinal) {
+        return distinctIngredientIds[ordinal];
+    }
+
+    /**
+     * Returns the recipe with the given document id, or null.
+     */
+    public Recipe get(String id) {
+        Integer ordinal = ordinals.get(id);
+        return ordinal == null ? null : recipes[ordinal];
+    }
+
+    /**
+     * Returns every recipe that uses at least one of the given ingredients, compared in normalized
+     * form, in document id order. This is the in-memory form of an {@code array-contains-any} query.
+     */
+    public List<Recipe> withAnyIngredient(Collection<String> ingredients) {
+        int[] ordinals = candidates(ingredients);
+        List<Recipe> result = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            result.add(recipes[ordinal]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ascending numbers of the recipes that use at least one of the given ingredients,
+     * compared in normalized form.
+     */
+    public int[] candidates(Collection<String> ingredients) {
+        int[] ids = new int[ingredients.size()];
+        int count = 0;
+        for (String ingredient : ingredients) {
+            int id = dictionary.id(Recipe.normalize(ingredient));
+            if (id >= 0) {
+                ids[count++] = id;
+            }
+        }
+        return candidates(Arrays.copyOf(ids, count));
+    }
+
+    /**
+     * Returns the ascending numbers of the recipes that use at least one of the given ingredient ids.
+     */
+    public int[] candidates(int[] ids) {
+        List<int[]> lists = new ArrayList<>(ids.length);
+        int total = 0;
+        for (int id : ids) {
+            int[] list = postings[id];
+            if (list.length > 0) {
+                lists.add(list);
+                total += list.length;
+            }
+        }
+        if (lists.size() == 1) {
+            return lists.get(0).clone();
+        }
+        int[] merged = new int[total];
+        int count = 0;
+        for (int[] list : lists) {
+            System.arraycopy(list, 0, merged, count, list.length);
+            count += list.length;
+        }
+        Arrays.sort(merged);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || merged[distinct - 1] != merged[i]) {
+                merged[distinct++] = merged[i];
+            }
+        }
+        return Arrays.copyOf(merged, distinct);
+    }
+}
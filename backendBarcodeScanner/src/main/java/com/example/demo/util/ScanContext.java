@@ -0,0 +1,179 @@
+package com.example.demo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reusable working memory for scans, one instance per thread.
+ *
+ * Planes are frame-sized luma buffers that live for a whole scan: the grayscale frame, region
+ * crops, pyramid levels and preprocessing variants. A scan opens the context of the thread it
+ * runs on, takes planes from it, and hands them all back when the context is closed. Helper lanes
+ * of a {@link DecodeRace} read the planes of the scanning thread, so they hold the context too and
+ * the planes only come back once the last of them has finished.
+ *
+ * Scratch buffers only live during a single kernel call (the summed-area table of the threshold,
+ * the masks of the localizer) and always come from the calling thread's own context.
+ *
+ * Buffers grow with the largest frame seen. Every {@value #SHRINK_WINDOW} scans, free planes more
+ * than twice the size of the largest plane requested in that window are dropped, so a single huge
+ * upload does not pin its buffers for the lifetime of the thread. Scratch buffers are only kept up
+ * to a fixed size.
+ */
+public final class ScanContext implements AutoCloseable {
+
+    private static final ThreadLocal<ScanContext> CONTEXTS = ThreadLocal.withInitial(ScanContext::new);
+    private static final int SHRINK_WINDOW = 64;
+    // Larger scratch buffers are allocated per call instead of kept: helper threads never open
+    // their context, so their scratch is never shrunk.
+    private static final int MAX_SCRATCH_LENGTH = 1 << 22;
+
+    /** Scratch slot of the summed-area table of the adaptive threshold. */
+    static final int INTS_INTEGRAL = 0;
+    /** Scratch slot of the running sums of the box blur. */
+    static final int INTS_BOX_ROWS = 1;
+    /** Scratch slot of the component stack of the localizer. */
+    static final int INTS_STACK = 2;
+    /** Scratch slot of the per-row column sums of the vector kernels. */
+    static final int INTS_ROWS = 3;
+    private static final int INT_SLOTS = 4;
+    private static final int MASK_SLOTS = 3;
+    private static final int BYTE_SLOTS = 3;
+
+    private final List<byte[]> free = new ArrayList<>();
+    private final List<byte[]> inUse = new ArrayList<>();
+    private int holds;
+    private int scans;
+    private int largestRequest;
+
+    private final int[][] ints = new int[INT_SLOTS][];
+    private final boolean[][] masks = new boolean[MASK_SLOTS][];
+    private final byte[][] bytes = new byte[BYTE_SLOTS][];
+
+    private ScanContext() {
+    }
+
+    /**
+     * Returns the context of the calling thread.
+     */
+    public static ScanContext current() {
+        return CONTEXTS.get();
+    }
+
+    /**
+     * Opens the calling thread's context for a scan. Nested opens are fine; the planes are handed
+     * back when the outermost one is closed.
+     */
+    public static ScanContext open() {
+        return current().retain();
+    }
+
+    /**
+     * Keeps the planes taken so far in use until the matching {@link #close()}, e.g. while a
+     * helper thread still reads them.
+     */
+    public synchronized ScanContext retain() {
+        holds++;
+        return this;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (holds == 0 || --holds > 0) {
+            return;
+        }
+        free.addAll(inUse);
+        inUse.clear();
+        if (++scans >= SHRINK_WINDOW) {
+            free.removeIf(buffer -> buffer.length > 2L * largestRequest);
+            scans = 0;
+            largestRequest = 0;
+        }
+    }
+
+    /**
+     * Returns a plane of the given size for the current scan. Its contents are undefined. When the
+     * context is not open the plane is simply allocated, since there would be no point to return it.
+     */
+    public synchronized LumaImage plane(int width, int height) {
+        int size = width * height;
+        if (holds == 0) {
+            return new LumaImage(width, height);
+        }
+        largestRequest = Math.max(largestRequest, size);
+        int best = -1;
+        for (int i = 0; i < free.size(); i++) {
+            int length = free.get(i).length;
+            if (length >= size && (best < 0 || length < free.get(best).length)) {
+                best = i;
+            }
+        }
+        byte[] buffer;
+        if (best >= 0) {
+            buffer = free.remove(best);
+        } else {
+            // Nothing fits: the largest free plane is replaced by a bigger one.
+            int largest = -1;
+            for (int i = 0; i < free.size(); i++) {
+                if (largest < 0 || free.get(i).length > free.get(largest).length) {
+                    largest = i;
+                }
+            }
+            if (largest >= 0) {
+                free.remove(largest);
+            }
+            buffer = new byte[size];
+        }
+        inUse.add(buffer);
+        return new LumaImage(buffer, width, height);
+    }
+
+    /**
+     * Returns an int scratch buffer with at least the given length. Its contents are undefined.
+     */
+    int[] scratchInts(int slot, int length) {
+        int[] buffer = ints[slot];
+        if (buffer == null || buffer.length < length) {
+            buffer = new int[length];
+            if (length <= MAX_SCRATCH_LENGTH) {
+                ints[slot] = buffer;
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a boolean scratch buffer with at least the given length. Its contents are undefined.
+     */
+    boolean[] scratchMask(int slot, int length) {
+        boolean[] buffer = masks[slot];
+        if (buffer == null || buffer.length < length) {
+            buffer = new boolean[length];
+            if (length <= MAX_SCRATCH_LENGTH) {
+                masks[slot] = buffer;
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a scratch plane of the given size. Its contents are undefined.
+     */
+    LumaImage scratchPlane(int slot, int width, int height) {
+        byte[] buffer = bytes[slot];
+        if (buffer == null || buffer.length < width * height) {
+            buffer = new byte[width * height];
+            if (buffer.length <= MAX_SCRATCH_LENGTH) {
+                bytes[slot] = buffer;
+            }
+        }
+        return new LumaImage(buffer, width, height);
+    }
+
+    /**
+     * Number of planes this context currently keeps, in use or free.
+     */
+    synchronized int pooledPlanes() {
+        return free.size() + inUse.size();
+    }
+}
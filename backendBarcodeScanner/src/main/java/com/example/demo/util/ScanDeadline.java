@@ -0,0 +1,57 @@
+package com.example.demo.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time budget of one scan. The pipeline checks it between decode attempts rather than inside them,
+ * so a scan can overrun by at most one attempt. Once the deadline has been seen to pass, the scan
+ * remembers that it was cut short, so a miss can be reported as "retry" rather than "no barcode".
+ */
+public final class ScanDeadline {
+
+    private static final ScanDeadline NONE = new ScanDeadline(0, false);
+
+    private final long deadlineNanos;
+    private final boolean bounded;
+    // Set by whichever thread of the scan first sees the deadline pass.
+    private volatile boolean reached;
+
+    private ScanDeadline(long deadlineNanos, boolean bounded) {
+        this.deadlineNanos = deadlineNanos;
+        this.bounded = bounded;
+    }
+
+    /**
+     * A deadline that never passes.
+     */
+    public static ScanDeadline none() {
+        return NONE;
+    }
+
+    /**
+     * A deadline the given number of milliseconds from now; 0 or less means no deadline.
+     */
+    public static ScanDeadline in(long millis) {
+        if (millis <= 0) {
+            return NONE;
+        }
+        return new ScanDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis), true);
+    }
+
+    /**
+     * Whether the deadline has passed. Call it before starting another attempt.
+     */
+    public boolean expired() {
+        if (!reached && bounded && System.nanoTime() - deadlineNanos >= 0) {
+            reached = true;
+        }
+        return reached;
+    }
+
+    /**
+     * Whether the scan saw the deadline pass, i.e. skipped work because of it.
+     */
+    public boolean wasReached() {
+        return reached;
+    }
+}
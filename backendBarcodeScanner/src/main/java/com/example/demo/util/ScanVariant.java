@@ -0,0 +1,11 @@
+package com.example.demo.util;
+
+/**
+ * The preprocessed versions of a frame that the decoder can try.
+ */
+public enum ScanVariant {
+    GRAY,
+    BLURRED,
+    THRESHOLDED,
+    EDGES
+}
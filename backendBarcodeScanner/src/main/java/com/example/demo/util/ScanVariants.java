@@ -0,0 +1,81 @@
+package com.example.demo.util;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Lazily computed preprocessing variants of a single grayscale frame.
+ * Each variant is built the first time it is requested and then shared, so a scan that
+ * succeeds on an early attempt never pays for the later ones. Safe to use from several
+ * decode workers at once. The variants are computed by a {@link PreprocessingBackend} into planes
+ * of the given {@link ScanContext}, by default the one that was current when the variants were created.
+ */
+public final class ScanVariants {
+
+    private final LumaImage gray;
+    private final PreprocessingBackend backend;
+    private final ScanContext context;
+    private final Map<ScanVariant, LumaImage> computed = new EnumMap<>(ScanVariant.class);
+
+    public ScanVariants(LumaImage gray) {
+        this(gray, PreprocessingBackends.active());
+    }
+
+    public ScanVariants(LumaImage gray, PreprocessingBackend backend) {
+        this(gray, backend, ScanContext.current());
+    }
+
+    public ScanVariants(LumaImage gray, PreprocessingBackend backend, ScanContext context) {
+        this.gray = gray;
+        this.backend = backend;
+        this.context = context;
+    }
+
+    public LumaImage getGray() {
+        return gray;
+    }
+
+    /**
+     * Returns the requested variant, computing it (and the variants it depends on) if needed.
+     */
+    public LumaImage get(ScanVariant variant) {
+        if (variant == ScanVariant.GRAY) {
+            return gray;
+        }
+        synchronized (this) {
+            return compute(variant);
+        }
+    }
+
+    private LumaImage compute(ScanVariant variant) {
+        LumaImage image = computed.get(variant);
+        if (image != null) {
+            return image;
+        }
+        switch (variant) {
+            case BLURRED:
+                // Apply noise reduction using a simple Gaussian blur.
+                image = backend.gaussianBlur(gray, plane());
+                break;
+            case THRESHOLDED:
+                // Apply adaptive thresholding.
+                image = backend.adaptiveThreshold(compute(ScanVariant.BLURRED),
+                        CustomBarcodeProcessor.thresholdBlockSize(gray.getWidth(), gray.getHeight()),
+                        CustomBarcodeProcessor.THRESHOLD_C, plane());
+                break;
+            case EDGES:
+                // Apply edge detection using a Sobel operator.
+                image = backend.sobelEdgeDetection(compute(ScanVariant.THRESHOLDED), plane());
+                break;
+            default:
+                image = gray;
+                break;
+        }
+        computed.put(variant, image);
+        return image;
+    }
+
+    private LumaImage plane() {
+        return context.plane(gray.getWidth(), gray.getHeight());
+    }
+}
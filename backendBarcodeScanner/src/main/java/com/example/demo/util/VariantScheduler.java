@@ -0,0 +1,150 @@
+package com.example.demo.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Orders the TRY_HARDER decode attempts by what has recently worked.
+ *
+ * Each attempt is an "arm": a preprocessing variant in one orientation (upright or 90°).
+ * For every arm, the scheduler keeps lock-free counters of attempts, successes and time spent.
+ * Arms are ranked by smoothed success rate per unit of cost. The counters are halved after every
+ * window of attempts, so the ranking follows changes in the input mix. A fraction of scans
+ * (the exploration floor) uses a random order, so arms that are currently losing still get
+ * tried first now and then.
+ */
+public final class VariantScheduler {
+
+    public static final int ARM_COUNT = ScanVariant.values().length * 2;
+
+    // Attempts after which all counters are halved.
+    private static final long DECAY_WINDOW = 2000;
+
+    private final double exploration;
+    private final int[] defaultOrder;
+    private final AtomicLongArray attempts = new AtomicLongArray(ARM_COUNT);
+    private final AtomicLongArray successes = new AtomicLongArray(ARM_COUNT);
+    private final AtomicLongArray nanos = new AtomicLongArray(ARM_COUNT);
+    private final AtomicLong sinceDecay = new AtomicLong();
+
+    /**
+     * @param exploration  fraction of scans (0-1) that try the arms in random order
+     * @param defaultOrder variants in the order to use before any statistics exist
+     */
+    public VariantScheduler(double exploration, ScanVariant... defaultOrder) {
+        this.exploration = exploration;
+        this.defaultOrder = armsFor(defaultOrder);
+    }
+
+    /**
+     * Returns the arms in the order both orientations of each variant appear in the given list.
+     */
+    public static int[] armsFor(ScanVariant... variants) {
+        int[] arms = new int[variants.length * 2];
+        for (int i = 0; i < variants.length; i++) {
+            arms[2 * i] = arm(variants[i], false);
+            arms[2 * i + 1] = arm(variants[i], true);
+        }
+        return arms;
+    }
+
+    public static int arm(ScanVariant variant, boolean rotated) {
+        return variant.ordinal() * 2 + (rotated ? 1 : 0);
+    }
+
+    public static ScanVariant variantOf(int arm) {
+        return ScanVariant.values()[arm / 2];
+    }
+
+    public static boolean isRotated(int arm) {
+        return (arm & 1) == 1;
+    }
+
+    /**
+     * Returns the arms to try for the next scan, best first.
+     */
+    public int[] order() {
+        List<Integer> arms = new ArrayList<>(defaultOrder.length);
+        for (int arm : defaultOrder) {
+            arms.add(arm);
+        }
+        if (ThreadLocalRandom.current().nextDouble() < exploration) {
+            Collections.shuffle(arms, ThreadLocalRandom.current());
+        } else {
+            double[] scores = new double[ARM_COUNT];
+            for (int arm : defaultOrder) {
+                scores[arm] = score(arm);
+            }
+            // Stable sort, so arms without data keep the default order.
+            arms.sort((a, b) -> Double.compare(scores[b], scores[a]));
+        }
+        int[] order = new int[arms.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = arms.get(i);
+        }
+        return order;
+    }
+
+    /**
+     * Records the outcome and duration of one attempt.
+     */
+    public void record(int arm, boolean success, long elapsedNanos) {
+        attempts.incrementAndGet(arm);
+        if (success) {
+            successes.incrementAndGet(arm);
+        }
+        nanos.addAndGet(arm, elapsedNanos);
+        if (sinceDecay.incrementAndGet() >= DECAY_WINDOW) {
+            decay();
+        }
+    }
+
+    /**
+     * Returns per-arm attempts, successes, average cost and current score.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (int arm : defaultOrder) {
+            long n = attempts.get(arm);
+            Map<String, Object> armStats = new LinkedHashMap<>();
+            armStats.put("attempts", n);
+            armStats.put("successes", successes.get(arm));
+            armStats.put("avgMillis", n == 0 ? 0.0 : nanos.get(arm) / 1e6 / n);
+            armStats.put("score", score(arm));
+            stats.put(variantOf(arm).name().toLowerCase() + (isRotated(arm) ? "_90" : "_0"), armStats);
+        }
+        return stats;
+    }
+
+    /**
+     * Smoothed success probability divided by the smoothed average cost in milliseconds.
+     */
+    private double score(int arm) {
+        long n = attempts.get(arm);
+        double successRate = (successes.get(arm) + 1.0) / (n + 2.0);
+        double avgMillis = (nanos.get(arm) / 1e6 + 1.0) / (n + 1.0);
+        return successRate / avgMillis;
+    }
+
+    /**
+     * Halves every counter. Only the thread that resets the window performs the decay; updates
+     * racing with it may be halved or not, which only blurs the history slightly.
+     */
+    private void decay() {
+        long current = sinceDecay.get();
+        if (current < DECAY_WINDOW || !sinceDecay.compareAndSet(current, 0)) {
+            return;
+        }
+        for (int arm = 0; arm < ARM_COUNT; arm++) {
+            attempts.getAndUpdate(arm, v -> v / 2);
+            successes.getAndUpdate(arm, v -> v / 2);
+            nanos.getAndUpdate(arm, v -> v / 2);
+        }
+    }
+}
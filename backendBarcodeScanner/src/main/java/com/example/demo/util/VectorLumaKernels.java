@@ -0,0 +1,216 @@
+package com.example.demo.util;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of the hot {@link LumaKernels} built on the {@code jdk.incubator.vector} API.
+ * Each kernel produces exactly the same bytes as its scalar counterpart. Eight pixels are widened
+ * to int lanes per step, and the columns left over at the end of a row are done one at a time.
+ * The 3×3 kernels are split into a vertical pass into an int row (scratch of the thread's
+ * {@link ScanContext}) and a horizontal pass over it: with all nine byte loads in one loop body,
+ * C2 gives up inlining before the store and boxes a vector on every step.
+ *
+ * The lane shapes are fixed at 256 bits. On hardware with narrower vectors the API falls back to
+ * boxed lane-by-lane code that is much slower than the scalar loops, so {@link #isSupported()}
+ * turns the kernels down there. Only referenced through {@link LumaKernels}, which checks that the
+ * incubator module is enabled (it needs {@code --add-modules jdk.incubator.vector}) before
+ * touching this class.
+ */
+final class VectorLumaKernels {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_256;
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_256;
+    // Adding 2^23 to a float below 2^23 leaves its value rounded to an integer in the mantissa.
+    private static final float ROUNDING = 1 << 23;
+    private static final int ROUNDING_BITS = Float.floatToIntBits(ROUNDING);
+    private static final int LANES = INTS.length();
+
+    private VectorLumaKernels() {
+    }
+
+    /**
+     * Whether the CPU has vectors of at least 256 bits, so the fixed species compile to real SIMD
+     * instructions. Also forces the vector classes to load, so a missing module fails while
+     * choosing the kernels.
+     */
+    static boolean isSupported() {
+        return IntVector.SPECIES_PREFERRED.vectorBitSize() >= INTS.vectorBitSize() && LANES == BYTES.length();
+    }
+
+    /**
+     * Vector version of {@link LumaKernels#gaussianBlur(LumaImage)}.
+     */
+    static LumaImage gaussianBlur(LumaImage src) {
+        return gaussianBlur(src, new LumaImage(src.getWidth(), src.getHeight()));
+    }
+
+    static LumaImage gaussianBlur(LumaImage src, LumaImage dst) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        byte[] in = src.getData();
+        byte[] out = dst.getData();
+        // Column sums up + 2·mid + down of the current row.
+        int[] columns = ScanContext.current().scratchInts(ScanContext.INTS_ROWS, width);
+        for (int y = 1; y < height - 1; y++) {
+            int up = (y - 1) * width;
+            int mid = y * width;
+            int down = (y + 1) * width;
+            int x = verticalRow(in, columns, up, mid, down, width);
+            for (; x < width; x++) {
+                columns[x] = (in[up + x] & 0xff) + 2 * (in[mid + x] & 0xff) + (in[down + x] & 0xff);
+            }
+            x = blurRow(columns, out, mid, width);
+            for (; x < width - 1; x++) {
+                out[mid + x] = (byte) ((columns[x - 1] + 2 * columns[x] + columns[x + 1]) >> 4);
+            }
+        }
+        LumaKernels.copyBorder(in, out, width, height);
+        return dst;
+    }
+
+    /**
+     * Vector part of the column sums up + 2·mid + down of one row.
+     *
+     * @return the first column left for the scalar tail
+     */
+    private static int verticalRow(byte[] in, int[] columns, int up, int mid, int down, int width) {
+        int x = 0;
+        for (; x + LANES <= width; x += LANES) {
+            load(in, up + x).add(load(in, mid + x).lanewise(VectorOperators.LSHL, 1)).add(load(in, down + x))
+                    .intoArray(columns, x);
+        }
+        return x;
+    }
+
+    /**
+     * Vector part of the horizontal [1, 2, 1] / 16 pass of one blur row.
+     *
+     * @return the first column left for the scalar tail
+     */
+    private static int blurRow(int[] columns, byte[] out, int mid, int width) {
+        int x = 1;
+        for (; x + LANES <= width - 1; x += LANES) {
+            IntVector sum = IntVector.fromArray(INTS, columns, x - 1)
+                    .add(IntVector.fromArray(INTS, columns, x).lanewise(VectorOperators.LSHL, 1))
+                    .add(IntVector.fromArray(INTS, columns, x + 1));
+            store(sum.lanewise(VectorOperators.LSHR, 4), out, mid + x);
+        }
+        return x;
+    }
+
+    /**
+     * Vector version of {@link LumaKernels#sobelEdgeDetection(LumaImage)}. The magnitude is an
+     * exact integer square root, equal to the truncated double one of the scalar kernel.
+     */
+    static LumaImage sobelEdgeDetection(LumaImage src) {
+        return sobelEdgeDetection(src, new LumaImage(src.getWidth(), src.getHeight()));
+    }
+
+    static LumaImage sobelEdgeDetection(LumaImage src, LumaImage dst) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        byte[] in = src.getData();
+        byte[] out = dst.getData();
+        // gx = s[x + 1] - s[x - 1] with the column sums s = up + 2·mid + down in the first half,
+        // gy = d[x - 1] + 2·d[x] + d[x + 1] with the column differences d = down - up in the second.
+        int[] columns = ScanContext.current().scratchInts(ScanContext.INTS_ROWS, 2 * width);
+        for (int y = 1; y < height - 1; y++) {
+            int up = (y - 1) * width;
+            int mid = y * width;
+            int down = (y + 1) * width;
+            int x = sobelColumns(in, columns, up, mid, down, width);
+            for (; x < width; x++) {
+                columns[x] = (in[up + x] & 0xff) + 2 * (in[mid + x] & 0xff) + (in[down + x] & 0xff);
+                columns[width + x] = (in[down + x] & 0xff) - (in[up + x] & 0xff);
+            }
+            x = sobelRow(columns, out, mid, width);
+            for (; x < width - 1; x++) {
+                int gx = columns[x + 1] - columns[x - 1];
+                int gy = columns[width + x - 1] + 2 * columns[width + x] + columns[width + x + 1];
+                int g = (int) Math.sqrt(gx * gx + gy * gy);
+                out[mid + x] = (byte) (g > 255 ? 255 : g);
+            }
+        }
+        LumaKernels.copyBorder(in, out, width, height);
+        return dst;
+    }
+
+    /**
+     * Vector part of the column sums and, after them, the column differences down - up of one row.
+     *
+     * @return the first column left for the scalar tail
+     */
+    private static int sobelColumns(byte[] in, int[] columns, int up, int mid, int down, int width) {
+        int x = 0;
+        for (; x + LANES <= width; x += LANES) {
+            IntVector top = load(in, up + x);
+            IntVector bottom = load(in, down + x);
+            top.add(load(in, mid + x).lanewise(VectorOperators.LSHL, 1)).add(bottom).intoArray(columns, x);
+            bottom.sub(top).intoArray(columns, width + x);
+        }
+        return x;
+    }
+
+    /**
+     * Vector part of the horizontal pass and magnitude of one Sobel row.
+     *
+     * @return the first column left for the scalar tail
+     */
+    private static int sobelRow(int[] columns, byte[] out, int mid, int width) {
+        int x = 1;
+        for (; x + LANES <= width - 1; x += LANES) {
+            IntVector gx = IntVector.fromArray(INTS, columns, x + 1).sub(IntVector.fromArray(INTS, columns, x - 1));
+            IntVector gy = IntVector.fromArray(INTS, columns, width + x - 1)
+                    .add(IntVector.fromArray(INTS, columns, width + x).lanewise(VectorOperators.LSHL, 1))
+                    .add(IntVector.fromArray(INTS, columns, width + x + 1));
+            store(clampedSqrt(gx.mul(gx).add(gy.mul(gy))), out, mid + x);
+        }
+        return x;
+    }
+
+    /**
+     * Vector version of {@link LumaKernels#packedRgbToLuma(int[], int, byte[], int, int)}.
+     */
+    static void packedRgbToLuma(int[] pixels, int in, byte[] out, int o, int count) {
+        int x = 0;
+        for (; x + LANES <= count; x += LANES) {
+            IntVector rgb = IntVector.fromArray(INTS, pixels, in + x);
+            IntVector r = rgb.lanewise(VectorOperators.LSHR, 16).and(0xff);
+            IntVector g = rgb.lanewise(VectorOperators.LSHR, 8).and(0xff);
+            IntVector b = rgb.and(0xff);
+            IntVector luma = r.mul(LumaKernels.LUMA_R).add(g.mul(LumaKernels.LUMA_G)).add(b.mul(LumaKernels.LUMA_B))
+                    .lanewise(VectorOperators.LSHR, 16);
+            store(luma, out, o + x);
+        }
+        for (; x < count; x++) {
+            out[o + x] = (byte) LumaKernels.luma(pixels[in + x]);
+        }
+    }
+
+    /**
+     * Integer square root of each lane, clamped to 255. The float square root is rounded to the
+     * nearest integer by adding 2^23 and reading the low mantissa bits (which avoids the float to
+     * int conversion, slow on Java 17), then lowered by one where its square exceeds the input.
+     */
+    static IntVector clampedSqrt(IntVector squared) {
+        IntVector n = squared.min(255 * 255);
+        FloatVector root = ((FloatVector) n.convertShape(VectorOperators.I2F, FLOATS, 0)).sqrt().add(ROUNDING);
+        IntVector rounded = root.reinterpretAsInts().sub(ROUNDING_BITS);
+        return rounded.add(n.sub(rounded.mul(rounded)).lanewise(VectorOperators.ASHR, 31));
+    }
+
+    // Eight unsigned bytes widened to int lanes.
+    private static IntVector load(byte[] data, int offset) {
+        return ((IntVector) ByteVector.fromArray(BYTES, data, offset).convertShape(VectorOperators.B2I, INTS, 0)).and(0xff);
+    }
+
+    // Stores the low byte of each int lane.
+    private static void store(IntVector values, byte[] data, int offset) {
+        ((ByteVector) values.convertShape(VectorOperators.I2B, BYTES, 0)).intoArray(data, offset);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecipeRankingTest {
+
+    private static RecipeMatch match(String id, double score) {
+        Recipe recipe = new Recipe(id, id, null, null, Collections.singletonList("salt"), null, null, null, null);
+        return new RecipeMatch(recipe, 1, 1, Collections.singletonList("salt"), Collections.emptyList(), score, 3);
+    }
+
+    private static List<String> ids(List<RecipeMatch> matches) {
+        List<String> ids = new ArrayList<>();
+        for (RecipeMatch match : matches) {
+            ids.add(match.getRecipe().getId());
+        }
+        return ids;
+    }
+
+    @Test
+    void pagesFollowTheFullRankingWithTiesInIdOrder() {
+        Random random = new Random(11);
+        List<RecipeMatch> matches = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            matches.add(match(String.format("r%04d", random.nextInt(10000)), random.nextInt(40) / 4.0));
+        }
+        List<RecipeMatch> expected = new ArrayList<>(matches);
+        expected.sort(RecipeRanking.RANK);
+
+        RecipeRanking ranking = new RecipeRanking(matches);
+        assertEquals(500, ranking.size());
+        assertEquals(ids(expected.subList(0, 25)), ids(ranking.page(0, 25)));
+        List<RecipeMatch> all = new ArrayList<>();
+        for (int offset = 0; offset < ranking.size(); offset += 30) {
+            all.addAll(ranking.page(offset, 30));
+        }
+        assertEquals(ids(expected), ids(all));
+        assertEquals(ids(expected.subList(0, 25)), ids(ranking.page(0, 25)));
+    }
+
+    @Test
+    void pagesPastTheEndAreEmpty() {
+        RecipeRanking ranking = new RecipeRanking(List.of(match("b", 1), match("a", 1), match("c", 2)));
+        assertEquals(List.of("c", "a", "b"), ids(ranking.page(0, 10)));
+        assertEquals(List.of("b"), ids(ranking.page(2, Integer.MAX_VALUE)));
+        assertTrue(ranking.page(3, 10).isEmpty());
+    }
+}
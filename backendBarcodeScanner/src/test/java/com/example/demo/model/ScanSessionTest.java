@@ -0,0 +1,89 @@
+package com.example.demo.model;
+
+import com.example.demo.util.CustomBarcodeProcessor;
+import com.example.demo.util.FrameSignature;
+import com.example.demo.util.LumaLuminanceSource;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.oned.EAN13Writer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanSessionTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int MAX_DIFFERENCE = 4;
+    private static final long MISS_REUSE_MS = 300;
+    private static final long HIT_REUSE_MS = 2000;
+
+    // An EAN-13 barcode printed at the same spot of the same gray background.
+    private static byte[] frame(String code) {
+        byte[] frame = new byte[WIDTH * HEIGHT];
+        Arrays.fill(frame, (byte) 150);
+        BitMatrix bars = new EAN13Writer().encode(code, BarcodeFormat.EAN_13, 300, 120);
+        int left = (WIDTH - bars.getWidth()) / 2;
+        int top = (HEIGHT - bars.getHeight()) / 2;
+        for (int y = 0; y < bars.getHeight(); y++) {
+            for (int x = 0; x < bars.getWidth(); x++) {
+                frame[(top + y) * WIDTH + left + x] = (byte) (bars.get(x, y) ? 20 : 235);
+            }
+        }
+        return frame;
+    }
+
+    private static LumaLuminanceSource source(byte[] frame) {
+        return LumaLuminanceSource.forPlane(frame, WIDTH, WIDTH, HEIGHT);
+    }
+
+    private static byte[] signature(byte[] frame) {
+        return FrameSignature.of(frame, WIDTH, WIDTH, HEIGHT);
+    }
+
+    // A session whose last decoded frame is the given one.
+    private static ScanSession decoded(byte[] frame, long now) {
+        Result result = CustomBarcodeProcessor.tryDecodeFastResult(source(frame));
+        assertNotNull(result);
+        ScanSession session = new ScanSession("s");
+        session.update(WIDTH, HEIGHT, signature(frame), ScanResult.found(result.getText()),
+                CustomBarcodeProcessor.regionAround(result, 0, 0, WIDTH, HEIGHT), now);
+        return session;
+    }
+
+    private static ScanResult reuse(ScanSession session, byte[] frame, long now) {
+        return session.reusableResult(WIDTH, HEIGHT, signature(frame), source(frame),
+                MAX_DIFFERENCE, MISS_REUSE_MS, HIT_REUSE_MS, now);
+    }
+
+    @Test
+    void lookAlikeBarcodeInTheSameFramingIsNotReused() {
+        byte[] first = frame("400638133393");
+        byte[] second = frame("400638133394");
+        assertTrue(FrameSignature.distance(signature(first), signature(second)) <= MAX_DIFFERENCE);
+
+        ScanSession session = decoded(first, 0);
+        assertEquals("4006381333931", reuse(session, first, 100).getBarcode());
+        assertNull(reuse(session, second, 100));
+    }
+
+    @Test
+    void hitsAndMissesAreReusedForALimitedTime() {
+        byte[] frame = frame("400638133393");
+        ScanSession session = decoded(frame, 0);
+        assertNotNull(reuse(session, frame, HIT_REUSE_MS));
+        assertNull(reuse(session, frame, HIT_REUSE_MS + 1));
+
+        ScanResult miss = ScanResult.notFound();
+        session.update(WIDTH, HEIGHT, signature(frame), miss, null, 0);
+        assertSame(miss, reuse(session, frame, MISS_REUSE_MS));
+        assertNull(reuse(session, frame, MISS_REUSE_MS + 1));
+    }
+}
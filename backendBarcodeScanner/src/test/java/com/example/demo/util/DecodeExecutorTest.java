@@ -0,0 +1,106 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecodeExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private DecodeExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    // Occupies a worker until the test releases it.
+    private DecodeExecutor.Task<String> blockWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        DecodeExecutor.Task<String> task = executor.submit(() -> {
+            started.countDown();
+            release.await();
+            return "blocked";
+        });
+        started.await();
+        return task;
+    }
+
+    @Test
+    void runsTasksAndRethrowsTheirExceptions() throws IOException {
+        executor = new DecodeExecutor(2, 4, 1000, 1, Executors.defaultThreadFactory());
+        assertEquals("ok", executor.call(() -> "ok"));
+        assertThrows(IOException.class, () -> executor.call(() -> {
+            throw new IOException("unreadable");
+        }));
+    }
+
+    @Test
+    void rejectsAtOnceWhenTheQueueIsFull() throws Exception {
+        executor = new DecodeExecutor(1, 1, 0, 3, Executors.defaultThreadFactory());
+        DecodeExecutor.Task<String> blocked = blockWorker();
+        DecodeExecutor.Task<String> queued = executor.submit(() -> "queued");
+
+        DecodeRejectedException e = assertThrows(DecodeRejectedException.class, () -> executor.submit(() -> "late"));
+        assertFalse(e.isQueueTimeout());
+        assertEquals(3, e.getRetryAfterSeconds());
+
+        release.countDown();
+        assertEquals("blocked", executor.join(blocked));
+        assertEquals("queued", executor.join(queued));
+        Map<String, Object> stats = executor.getStats();
+        assertEquals(2L, stats.get("submitted"));
+        assertEquals(1L, stats.get("rejected"));
+    }
+
+    @Test
+    void dropsTasksThatWaitPastTheDeadline() throws Exception {
+        executor = new DecodeExecutor(1, 4, 50, 1, Executors.defaultThreadFactory());
+        DecodeExecutor.Task<String> blocked = blockWorker();
+        boolean[] ran = new boolean[1];
+        DecodeExecutor.Task<String> queued = executor.submit(() -> {
+            ran[0] = true;
+            return "queued";
+        });
+
+        DecodeRejectedException e = assertThrows(DecodeRejectedException.class, () -> executor.await(queued));
+        assertTrue(e.isQueueTimeout());
+        assertEquals(0, executor.getStats().get("queueDepth"));
+
+        release.countDown();
+        // The running task is past the deadline too, but a started task always completes.
+        assertEquals("blocked", executor.await(blocked));
+        assertFalse(ran[0]);
+        assertEquals(1L, executor.getStats().get("expired"));
+    }
+
+    @Test
+    void runsRaceHelpersOnlyOnIdleWorkers() throws Exception {
+        executor = new DecodeExecutor(2, 4, 0, 1, Executors.defaultThreadFactory());
+        CountDownLatch helped = new CountDownLatch(1);
+        executor.helpers().execute(helped::countDown);
+        helped.await();
+
+        DecodeExecutor.Task<String> blocked = blockWorker();
+        DecodeExecutor.Task<String> alsoBlocked = blockWorker();
+        assertEquals(0, executor.idleThreads());
+        assertThrows(RejectedExecutionException.class, () -> executor.helpers().execute(() -> { }));
+
+        release.countDown();
+        executor.join(blocked);
+        executor.join(alsoBlocked);
+        assertEquals(1L, executor.getStats().get("raceHelpers"));
+        assertEquals(0, executor.getStats().get("queueDepth"));
+    }
+}
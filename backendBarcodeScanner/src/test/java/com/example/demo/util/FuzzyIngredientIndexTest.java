@@ -0,0 +1,48 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FuzzyIngredientIndexTest {
+
+    private static String randomWord(Random random) {
+        char[] chars = new char[1 + random.nextInt(9)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(4));
+        }
+        return new String(chars);
+    }
+
+    @Test
+    void boundedDistanceAgreesWithTheFullDistanceUpToTheBound() {
+        assertEquals(3, EditDistance.distance("kitten", "sitting"));
+        assertEquals(0, EditDistance.distance("", ""));
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            String a = randomWord(random);
+            String b = randomWord(random);
+            int max = random.nextInt(4);
+            assertEquals(Math.min(EditDistance.distance(a, b), max + 1), EditDistance.bounded(a, b, max), a + " / " + b);
+        }
+    }
+
+    @Test
+    void searchFindsExactlyTheTermsWithinTheDistance() {
+        Random random = new Random(5);
+        String[] terms = IntStream.range(0, 400).mapToObj(i -> randomWord(random)).distinct().sorted().toArray(String[]::new);
+        FuzzyIngredientIndex index = new FuzzyIngredientIndex(terms, 2);
+        for (int i = 0; i < 200; i++) {
+            String query = randomWord(random);
+            int maxEdits = random.nextInt(3);
+            int[] expected = IntStream.range(0, terms.length)
+                    .filter(id -> EditDistance.distance(query, terms[id]) <= maxEdits).toArray();
+            assertArrayEquals(expected, index.search(query, maxEdits), query);
+        }
+        assertArrayEquals(new int[0], new FuzzyIngredientIndex(new String[0], 2).search("salt", 2));
+    }
+}
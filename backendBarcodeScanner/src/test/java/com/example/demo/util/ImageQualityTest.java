@@ -0,0 +1,54 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ImageQualityTest {
+
+    private static final double MIN_SHARPNESS = 400;
+    private static final double MAX_CLIPPED = 0.75;
+
+    // Vertical bars on a mid-gray background, with the bars only in a small patch of the frame.
+    private static LumaImage barsInCorner(int width, int height) {
+        LumaImage image = new LumaImage(width, height);
+        byte[] data = image.getData();
+        Arrays.fill(data, (byte) 140);
+        for (int y = 0; y < height / 6; y++) {
+            for (int x = 0; x < width / 6; x++) {
+                data[y * width + x] = (byte) ((x / 4) % 2 == 0 ? 30 : 220);
+            }
+        }
+        return image;
+    }
+
+    @Test
+    void smallSharpPatchKeepsTheFrameSharp() {
+        assertNull(ImageQuality.assess(barsInCorner(1600, 1200), MIN_SHARPNESS, MAX_CLIPPED));
+    }
+
+    @Test
+    void blurredFrameIsRejectedAsBlurry() {
+        LumaImage blurred = barsInCorner(640, 480);
+        for (int i = 0; i < 20; i++) {
+            blurred = LumaKernels.boxBlur(blurred, 1);
+        }
+        assertEquals(ImageQuality.Issue.BLURRY, ImageQuality.assess(blurred, MIN_SHARPNESS, MAX_CLIPPED));
+        assertNull(ImageQuality.assess(blurred, 0, MAX_CLIPPED));
+    }
+
+    @Test
+    void clippedFramesAreRejectedByExposure() {
+        LumaImage dark = barsInCorner(640, 480);
+        Arrays.fill(dark.getData(), 640 * 100, 640 * 480, (byte) 2);
+        assertEquals(ImageQuality.Issue.UNDEREXPOSED, ImageQuality.assess(dark, MIN_SHARPNESS, MAX_CLIPPED));
+
+        LumaImage bright = barsInCorner(640, 480);
+        Arrays.fill(bright.getData(), 640 * 100, 640 * 480, (byte) 255);
+        assertEquals(ImageQuality.Issue.OVEREXPOSED, ImageQuality.assess(bright, MIN_SHARPNESS, MAX_CLIPPED));
+        assertNull(ImageQuality.assess(bright, MIN_SHARPNESS, 0));
+    }
+}
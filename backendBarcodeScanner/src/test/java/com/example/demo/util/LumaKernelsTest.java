@@ -0,0 +1,70 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LumaKernelsTest {
+
+    /**
+     * Builds an unevenly lit gray test image: a horizontal brightness ramp with noise and dark bars.
+     */
+    private static BufferedImage unevenGray(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int v = 40 + (180 * x) / width + random.nextInt(30);
+                if ((x / 7) % 3 == 0) {
+                    v -= 35;
+                }
+                v = Math.max(0, Math.min(255, v));
+                image.setRGB(x, y, (0xff << 24) | (v << 16) | (v << 8) | v);
+            }
+        }
+        return image;
+    }
+
+    private static byte[] lowByte(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] out = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                out[y * width + x] = (byte) (image.getRGB(x, y) & 0xff);
+            }
+        }
+        return out;
+    }
+
+    @Test
+    void integralThresholdMatchesBufferedImageThreshold() {
+        BufferedImage gray = unevenGray(173, 91, 42);
+        byte[] expected = lowByte(CustomBarcodeProcessor.adaptiveThreshold(gray, 11, 2));
+
+        LumaImage luma = new LumaImage(lowByte(gray), gray.getWidth(), gray.getHeight());
+        assertArrayEquals(expected, LumaKernels.adaptiveThresholdIntegral(luma, 11, 2).getData());
+    }
+
+    @Test
+    void integralThresholdMatchesWindowThresholdForLargeBlocks() {
+        LumaImage luma = LumaImage.fromBufferedImage(unevenGray(240, 160, 7));
+        for (int blockSize : new int[] {3, 31, 75, 301}) {
+            assertArrayEquals(LumaKernels.adaptiveThreshold(luma, blockSize, 5).getData(),
+                    LumaKernels.adaptiveThresholdIntegral(luma, blockSize, 5).getData(),
+                    "block size " + blockSize);
+        }
+    }
+
+    @Test
+    void thresholdBlockSizeIsOddAndGrowsWithImage() {
+        assertEquals(11, CustomBarcodeProcessor.thresholdBlockSize(640, 480));
+        int large = CustomBarcodeProcessor.thresholdBlockSize(4000, 3000);
+        assertEquals(1, large % 2);
+        assertEquals(47, large);
+    }
+}
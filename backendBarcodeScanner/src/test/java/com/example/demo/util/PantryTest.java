@@ -0,0 +1,83 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PantryTest {
+
+    private static final Map<String, Set<String>> SYNONYMS = new HashMap<>();
+    static {
+        SYNONYMS.put("basil", new HashSet<>(Arrays.asList("fresh basil", "dried basil")));
+        SYNONYMS.put("cheese", new HashSet<>(Arrays.asList("cheddar", "parmesan cheese")));
+    }
+
+    private static final IngredientDictionary DICTIONARY = new IngredientDictionary(
+            Arrays.asList("tomato", "fresh basil", "cheddar", "olive oil", "peanut butter", "rice"), SYNONYMS);
+
+    private static int id(String term) {
+        return DICTIONARY.id(term);
+    }
+
+    private static int[] ids(String... terms) {
+        return Arrays.stream(terms).mapToInt(PantryTest::id).sorted().toArray();
+    }
+
+    @Test
+    void dictionaryNumbersTermsAndSynonymsDensely() {
+        assertEquals(10, DICTIONARY.size());
+        assertEquals(-1, id("tofu"));
+        int basil = DICTIONARY.group(id("fresh basil"));
+        assertEquals(id("basil"), DICTIONARY.groupCanonical(basil));
+        assertEquals(basil, DICTIONARY.group(id("dried basil")));
+        assertEquals(3, DICTIONARY.groupMembers(basil).length);
+        assertEquals(-1, DICTIONARY.group(id("rice")));
+    }
+
+    @Test
+    void matchesExactFuzzyAndSynonymIngredients() {
+        List<String> user = Arrays.asList(" Tomatoe", "BASIL", "chese");
+        Pantry pantry = new Pantry(DICTIONARY, user, Collections.emptyList());
+        assertTrue(pantry.matches(id("tomato")));
+        assertTrue(pantry.matches(id("fresh basil")));
+        assertTrue(pantry.matches(id("cheddar")));
+        assertFalse(pantry.matches(id("olive oil")));
+        assertFalse(pantry.matches(id("rice")));
+        assertArrayEquals(ids("tomato", "basil", "dried basil", "fresh basil", "cheese", "cheddar", "parmesan cheese"),
+                pantry.matchedIds());
+    }
+
+    @Test
+    void bansIngredientsContainingABannedOne() {
+        Pantry pantry = new Pantry(DICTIONARY, Collections.singletonList("rice"), Collections.singletonList(" Peanut "));
+        assertTrue(pantry.anyBanned(new int[] {id("rice"), id("peanut butter")}));
+        assertFalse(pantry.anyBanned(new int[] {id("rice"), id("tomato")}));
+        assertFalse(new Pantry(DICTIONARY, Collections.singletonList("rice"), Collections.emptyList())
+                .anyBanned(new int[] {id("peanut butter")}));
+    }
+
+    @Test
+    void categoriesCompareLiteralIngredients() {
+        Pantry pantry = new Pantry(DICTIONARY, Arrays.asList("tomato", "rice"), Collections.emptyList());
+        assertTrue(pantry.covers(ids("tomato", "rice")));
+        assertTrue(pantry.covers(ids("rice")));
+        assertFalse(pantry.covers(ids("rice", "cheddar")));
+        assertTrue(pantry.coveredBy(ids("rice", "tomato", "cheddar")));
+        assertFalse(pantry.coveredBy(ids("rice", "cheddar")));
+
+        Pantry withUnknown = new Pantry(DICTIONARY, Arrays.asList("tomato", "tofu"), Collections.emptyList());
+        assertFalse(withUnknown.coveredBy(ids("tomato", "rice")));
+        assertArrayEquals(new int[0], DICTIONARY.groupMembers(-1));
+    }
+}
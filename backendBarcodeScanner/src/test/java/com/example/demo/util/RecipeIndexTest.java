@@ -0,0 +1,56 @@
+package com.example.demo.util;
+
+import com.example.demo.model.Recipe;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecipeIndexTest {
+
+    private static Recipe recipe(String id, String... ingredients) {
+        return new Recipe(id, "Recipe " + id, null, null, Arrays.asList(ingredients), 10L, 20L, 2L, null);
+    }
+
+    private static List<String> ids(List<Recipe> recipes) {
+        return recipes.stream().map(Recipe::getId).collect(Collectors.toList());
+    }
+
+    private static RecipeIndex catalog() {
+        return new RecipeIndex(1, Arrays.asList(
+                recipe("c", "Chicken", "rice"),
+                recipe("a", "rice", "beans"),
+                recipe("b", "basil", " chicken ")), Collections.emptyMap());
+    }
+
+    @Test
+    void findsRecipesWithAnyIngredientOnceInIdOrder() {
+        RecipeIndex index = catalog();
+        assertEquals(Arrays.asList("a", "b", "c"), ids(index.withAnyIngredient(Arrays.asList("CHICKEN", "rice"))));
+        assertEquals(Collections.singletonList("b"), ids(index.withAnyIngredient(Collections.singletonList("basil"))));
+        assertTrue(index.withAnyIngredient(Collections.singletonList("tofu")).isEmpty());
+        assertEquals(4, index.ingredientCount());
+    }
+
+    @Test
+    void changesBuildANewVersionAndLeaveTheOldOneIntact() {
+        RecipeIndex before = catalog();
+        RecipeIndex after = before.withChanges(2,
+                Arrays.asList(recipe("a", "tofu"), recipe("d", "rice")), Collections.singleton("c"));
+
+        assertEquals(2, after.getVersion());
+        assertEquals(3, after.size());
+        assertNull(after.get("c"));
+        assertEquals(Arrays.asList("d"), ids(after.withAnyIngredient(Collections.singletonList("rice"))));
+        assertEquals(Arrays.asList("a"), ids(after.withAnyIngredient(Collections.singletonList("tofu"))));
+
+        assertEquals(Arrays.asList("a", "c"), ids(before.withAnyIngredient(Collections.singletonList("rice"))));
+        assertEquals(30, before.get("c").getTotalTime());
+    }
+}
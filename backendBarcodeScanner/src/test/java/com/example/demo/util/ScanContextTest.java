@@ -0,0 +1,111 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ScanContextTest {
+
+    private static LumaImage randomImage(int width, int height, long seed) {
+        LumaImage image = new LumaImage(width, height);
+        new Random(seed).nextBytes(image.getData());
+        return image;
+    }
+
+    private static LumaImage dirtyPlane(int width, int height) {
+        LumaImage image = new LumaImage(width, height);
+        Arrays.fill(image.getData(), (byte) 0x5a);
+        return image;
+    }
+
+    @Test
+    void planesAreReusedOnceTheScanIsClosed() {
+        byte[] first;
+        try (ScanContext context = ScanContext.open()) {
+            first = context.plane(640, 480).getData();
+        }
+        try (ScanContext context = ScanContext.open()) {
+            // A smaller frame fits in the same buffer.
+            assertSame(first, context.plane(320, 240).getData());
+            assertNotSame(first, context.plane(320, 240).getData());
+        }
+    }
+
+    @Test
+    void heldPlanesAreNotHandedOutAgain() {
+        ScanContext held;
+        byte[] first;
+        try (ScanContext context = ScanContext.open()) {
+            first = context.plane(64, 64).getData();
+            // What a helper lane of a decode race does while it still reads the planes.
+            held = context.retain();
+        }
+        try (ScanContext context = ScanContext.open()) {
+            assertNotSame(first, context.plane(64, 64).getData());
+        }
+        held.close();
+        try (ScanContext context = ScanContext.open()) {
+            byte[] a = context.plane(64, 64).getData();
+            byte[] b = context.plane(64, 64).getData();
+            assertTrue(a == first || b == first, "released plane is reused");
+        }
+    }
+
+    @Test
+    void kernelsIgnoreStaleDestinationAndScratchContents() {
+        LumaImage large = randomImage(300, 200, 1);
+        LumaImage image = randomImage(97, 61, 2);
+        // Leave larger stale tables in the scratch buffers of this thread first.
+        LumaKernels.adaptiveThresholdIntegral(large, 15, 2, dirtyPlane(300, 200));
+        LumaKernels.boxBlur(large, 3, dirtyPlane(300, 200));
+
+        assertArrayEquals(LumaKernels.adaptiveThreshold(image, 15, 2).getData(),
+                LumaKernels.adaptiveThresholdIntegral(image, 15, 2, dirtyPlane(97, 61)).getData());
+        assertArrayEquals(LumaKernels.gradientDifference(image).getData(),
+                LumaKernels.gradientDifference(image, dirtyPlane(97, 61)).getData());
+        assertArrayEquals(LumaKernels.boxBlur(image, 3).getData(),
+                LumaKernels.boxBlur(image, 3, dirtyPlane(97, 61)).getData());
+        assertArrayEquals(LumaKernels.gaussianBlur(image).getData(),
+                LumaKernels.gaussianBlur(image, dirtyPlane(97, 61)).getData());
+        assertArrayEquals(LumaKernels.sobelEdgeDetection(image).getData(),
+                LumaKernels.sobelEdgeDetection(image, dirtyPlane(97, 61)).getData());
+    }
+
+    @Test
+    void steadyStateHardScanAllocatesLessThanOneFrame() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported(),
+                "per-thread allocation counters are not available");
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+
+        // A featureless frame runs every localization, variant and decode attempt without a hit.
+        int width = 1920;
+        int height = 1080;
+        LumaImage frame = new LumaImage(width, height);
+        Arrays.fill(frame.getData(), (byte) 128);
+        for (int i = 0; i < 10; i++) {
+            assertNull(CustomBarcodeProcessor.detectBarcodeHard(frame));
+        }
+        int scans = 5;
+        long before = allocations.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < scans; i++) {
+            CustomBarcodeProcessor.detectBarcodeHard(frame);
+        }
+        long perScan = (allocations.getThreadAllocatedBytes(thread) - before) / scans;
+        // Without reuse, the blurred, thresholded and edge planes alone are three frames per scan.
+        assertTrue(perScan < (long) width * height,
+                "allocated " + perScan + " bytes per scan of a " + width + "x" + height + " frame");
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.util;
+
+import jdk.incubator.vector.IntVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that the Vector API kernels produce exactly the bytes of the scalar kernels.
+ * Skipped when the JVM runs without {@code --add-modules jdk.incubator.vector}.
+ */
+class VectorLumaKernelsTest {
+
+    // Widths around the vector length and odd sizes, so the scalar row tails are exercised too.
+    private static final int[][] SIZES = {{3, 3}, {8, 5}, {9, 4}, {10, 10}, {17, 6}, {33, 21}, {640, 7}, {1001, 13}};
+
+    private static LumaImage randomImage(int width, int height, Random random, boolean extremes) {
+        LumaImage image = new LumaImage(width, height);
+        byte[] data = image.getData();
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (extremes ? (random.nextBoolean() ? 255 : 0) : random.nextInt(256));
+        }
+        return image;
+    }
+
+    @Test
+    void gaussianBlurMatchesScalar() {
+        assumeTrue(LumaKernels.isVectorized(), "Vector API kernels are not enabled");
+        Random random = new Random(15);
+        for (int[] size : SIZES) {
+            LumaImage image = randomImage(size[0], size[1], random, false);
+            assertArrayEquals(LumaKernels.gaussianBlurScalar(image).getData(),
+                    VectorLumaKernels.gaussianBlur(image).getData(), "blur " + size[0] + "x" + size[1]);
+        }
+    }
+
+    @Test
+    void sobelMatchesScalarIncludingClampedEdges() {
+        assumeTrue(LumaKernels.isVectorized(), "Vector API kernels are not enabled");
+        Random random = new Random(16);
+        for (int[] size : SIZES) {
+            for (boolean extremes : new boolean[] {false, true}) {
+                LumaImage image = randomImage(size[0], size[1], random, extremes);
+                assertArrayEquals(LumaKernels.sobelEdgeDetectionScalar(image).getData(),
+                        VectorLumaKernels.sobelEdgeDetection(image).getData(), "sobel " + size[0] + "x" + size[1]);
+            }
+        }
+    }
+
+    @Test
+    void clampedSqrtMatchesTruncatedDoubleForAllSobelMagnitudes() {
+        assumeTrue(LumaKernels.isVectorized(), "Vector API kernels are not enabled");
+        int max = 2 * (4 * 255) * (4 * 255);
+        int[] squares = new int[IntVector.SPECIES_256.length()];
+        int[] roots = new int[squares.length];
+        for (int n = 0; n <= max; n += squares.length) {
+            for (int i = 0; i < squares.length; i++) {
+                squares[i] = n + i;
+            }
+            VectorLumaKernels.clampedSqrt(IntVector.fromArray(IntVector.SPECIES_256, squares, 0)).intoArray(roots, 0);
+            for (int i = 0; i < squares.length; i++) {
+                assertEquals(Math.min(255, (int) Math.sqrt(squares[i])), roots[i], "sqrt " + squares[i]);
+            }
+        }
+    }
+
+    @Test
+    void packedRgbToLumaMatchesScalar() {
+        assumeTrue(LumaKernels.isVectorized(), "Vector API kernels are not enabled");
+        Random random = new Random(17);
+        int[] pixels = new int[1000];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        for (int offset : new int[] {0, 3}) {
+            for (int count : new int[] {0, 7, 8, 9, 997}) {
+                byte[] expected = new byte[count];
+                byte[] actual = new byte[count];
+                for (int x = 0; x < count; x++) {
+                    expected[x] = (byte) LumaKernels.luma(pixels[offset + x]);
+                }
+                VectorLumaKernels.packedRgbToLuma(pixels, offset, actual, 0, count);
+                assertArrayEquals(expected, actual, "luma " + offset + "+" + count);
+            }
+        }
+    }
+
+    @Test
+    void fixedPointLumaKeepsGrayAndStaysWithinOneOfFloatingPoint() {
+        for (int v = 0; v < 256; v++) {
+            assertEquals(v, LumaKernels.luma(v, v, v));
+        }
+        Random random = new Random(18);
+        for (int i = 0; i < 100000; i++) {
+            int r = random.nextInt(256);
+            int g = random.nextInt(256);
+            int b = random.nextInt(256);
+            int exact = (int) (0.299 * r + 0.587 * g + 0.114 * b);
+            assertEquals(exact, LumaKernels.luma(r, g, b), 1.0);
+        }
+    }
+}